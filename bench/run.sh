@@ -0,0 +1,13 @@
+#!/bin/sh
+# Build the benchmark jar and run it. Arguments are passed on to JMH, e.g.
+#   bench/run.sh UnitAction -p size=200 -prof gc
+#   bench/run.sh -rf csv -rff baseline.csv
+# Benchmarks run inside bench/target/run, which links the repo's src folder so map files
+# resolve, and keeps the save_game.dat written by the save benchmarks away from real saves.
+set -e
+BENCH=$(cd "$(dirname "$0")" && pwd)
+mvn -B -q -f "$BENCH/pom.xml" package
+mkdir -p "$BENCH/target/run"
+ln -sfn "$BENCH/../src" "$BENCH/target/run/src"
+cd "$BENCH/target/run"
+exec java -jar "$BENCH/target/benchmarks.jar" "$@"
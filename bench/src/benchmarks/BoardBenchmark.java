@@ -0,0 +1,117 @@
+package benchmarks;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.FileTime;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import components.Tile;
+import models.CivBoard;
+
+/**
+ * Building a board, either by generating a Map 4 board of the given size or by parsing
+ * one of the map files. Boards start out empty, so there is no unit count to vary. Map
+ * files are opened relative to the working directory, which run.sh points at the repo.
+ * Map files are parsed once per process and then shared, so parse measures building a
+ * board from a cached MapTemplate. parseLarge parses a 1000x1000 map file written from a
+ * generated board, either with one line per tile or with runs of equal tiles on one line,
+ * and changes the file's modification time before every call so it is parsed each time.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BoardBenchmark {
+
+	@State(Scope.Benchmark)
+	public static class Generated {
+		@Param({ "20", "200", "2000" })
+		public int size;
+	}
+
+	@State(Scope.Benchmark)
+	public static class MapFile {
+		@Param({ "Map1", "Map2", "Thermopylae" })
+		public String map;
+	}
+
+	@State(Scope.Benchmark)
+	public static class LargeFile {
+		@Param({ "tiles", "runs" })
+		public String layout;
+
+		Path file;
+		long modified;
+
+		@Setup
+		public void write() throws IOException {
+			CivBoard board = new CivBoard(1000, 1);
+			StringBuilder text = new StringBuilder().append(board.size).append('\n');
+			String last = null;
+			int count = 0;
+			for (int x = 0; x < board.size; x++) {
+				for (int y = 0; y < board.size; y++) {
+					Tile t = board.getTile(x, y);
+					String resource = t.getResourceType();
+					String tile = t.getTerrainType().name().toLowerCase(Locale.ROOT) + " "
+							+ (resource.isEmpty() ? "n" : resource.substring(0, 1));
+					if (layout.equals("runs") && tile.equals(last)) {
+						count++;
+						continue;
+					}
+					if (last != null)
+						text.append(count).append(' ').append(last).append('\n');
+					last = tile;
+					count = 1;
+				}
+			}
+			text.append(count).append(' ').append(last).append('\n');
+			file = Paths.get("large_" + layout + ".txt");
+			Files.write(file, text.toString().getBytes());
+		}
+
+		@Setup(Level.Invocation)
+		public void touch() throws IOException {
+			Files.setLastModifiedTime(file, FileTime.fromMillis(++modified * 1000));
+		}
+
+		@TearDown
+		public void delete() throws IOException {
+			Files.delete(file);
+		}
+	}
+
+	@Benchmark
+	public CivBoard generate(Generated g) {
+		return new CivBoard(g.size);
+	}
+
+	@Benchmark
+	public CivBoard parse(MapFile m) throws IOException {
+		return new CivBoard("./src/models/" + m.map + ".txt");
+	}
+
+	@Benchmark
+	public CivBoard parseLarge(LargeFile f) throws IOException {
+		return new CivBoard(f.file.toString());
+	}
+
+}
@@ -0,0 +1,53 @@
+package benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import models.CivModel;
+
+/**
+ * One full CPU turn: the human player of a fresh Skirmish ends their turn, which runs the
+ * CPU's housekeeping, computerTurn() and hands control back. Every invocation gets a new
+ * game since a turn moves units, fights and builds, so the setup is excluded from the
+ * score but does make the benchmark slow to run at the larger sizes.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ComputerTurnBenchmark {
+
+	@Param({ "20", "200" })
+	public int size;
+
+	@Param({ "8", "64" })
+	public int units;
+
+	private Skirmish game;
+
+	@Setup(Level.Invocation)
+	public void setup() {
+		game = new Skirmish(size, units);
+	}
+
+	@Benchmark
+	public CivModel computerTurn() {
+		game.controller.endTurn();
+		return game.model;
+	}
+
+}
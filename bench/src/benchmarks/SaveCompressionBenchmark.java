@@ -0,0 +1,89 @@
+package benchmarks;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import controllers.CivController;
+import models.CivModel;
+
+/**
+ * Saving and loading a game with and without compression, on each bundled map and on a
+ * generated 500x500 Map 4 board. The game is two CPU players a few rounds in, so there
+ * are cities, units and some revealed fog to save. Saves go through a file in the working
+ * directory, which run.sh keeps under bench/target. The size of the save is printed once
+ * the trial is over, as JMH only measures time.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SaveCompressionBenchmark {
+
+	private static final int SIZE = 500; // of Map 4; the other maps have their own size
+	private static final int ROUNDS = 20;
+
+	@Param({ "1", "2", "3", "4" })
+	public int map;
+
+	@Param({ "false", "true" })
+	public boolean compress;
+
+	private CivModel model;
+	private Path file;
+
+	@Setup
+	public void setup() {
+		model = new CivModel(2, map, SIZE, 1);
+		CivController controller = new CivController(model);
+		controller.placeStartingUnits();
+		controller.setRoundLimit(model.roundNumber() + ROUNDS);
+		controller.startTurn();
+		model.setSaveCompression(compress);
+		file = Paths.get("compression_" + map + "_" + compress + ".dat");
+		save();
+	}
+
+	@TearDown
+	public void tearDown() throws IOException {
+		System.out.println("map " + map + (compress ? " compressed" : " uncompressed") + ": "
+				+ Files.size(file) + " bytes");
+		Files.delete(file);
+	}
+
+	@Benchmark
+	public boolean save() {
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+				StandardOpenOption.TRUNCATE_EXISTING)) {
+			model.writeGame(channel, 0);
+			return true;
+		} catch (IOException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	@Benchmark
+	public CivModel load() {
+		return new CivModel(file);
+	}
+
+}
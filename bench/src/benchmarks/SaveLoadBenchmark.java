@@ -0,0 +1,57 @@
+package benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import models.CivModel;
+
+/**
+ * Saving a Skirmish with CivModel.done() and loading it back with CivModel(). Both go
+ * through save_game.dat in the working directory, which run.sh keeps under bench/target
+ * so a real save is never overwritten.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SaveLoadBenchmark {
+
+	@Param({ "20", "200" })
+	public int size;
+
+	@Param({ "8", "64" })
+	public int units;
+
+	private Skirmish game;
+
+	@Setup
+	public void setup() {
+		game = new Skirmish(size, units);
+		if (!game.model.done())
+			throw new IllegalStateException("could not write save_game.dat");
+	}
+
+	@Benchmark
+	public boolean save() {
+		return game.model.done();
+	}
+
+	@Benchmark
+	public CivModel load() {
+		return new CivModel();
+	}
+
+}
@@ -0,0 +1,87 @@
+package benchmarks;
+
+import java.awt.Point;
+
+import components.Unit;
+import components.Warrior;
+import controllers.BenchAccess;
+import controllers.CivController;
+import models.CivModel;
+import models.Player;
+
+/**
+ * Skirmish.java
+ *
+ * A single player game on a generated Map 4 board, set up the same way for every
+ * benchmark: both starting settlers have founded their cities, and each player has been
+ * given the same number of extra warriors spread over the board. The human player is left
+ * to move, so ending their turn plays one full CPU turn and hands control back.
+ *
+ * @field model CivModel of the game
+ * @field controller CivController driving the game
+ * @field human the human Player, whose turn it is
+ * @field cpu the CPU Player
+ */
+final class Skirmish {
+
+	final CivModel model;
+	final CivController controller;
+	final Player human;
+	final Player cpu;
+
+	/**
+	 * Set up a game on a size x size board with unitsPerPlayer warriors for each side.
+	 *
+	 * @param size           size of the board; board is size x size
+	 * @param unitsPerPlayer number of warriors to give each player
+	 */
+	Skirmish(int size, int unitsPerPlayer) {
+		model = new CivModel(1, 4, size);
+		controller = new CivController(model);
+		controller.placeStartingUnits();
+		human = model.getHead();
+		int[] start = model.getPlayerStartingCoords().get(0);
+		controller.foundCity(start[0], start[1]);
+		controller.endTurn(); // the CPU founds its city and passes back
+		cpu = otherPlayer();
+		int inner = size - 2;
+		int placed = 0;
+		for (int i = 0; placed < 2 * unitsPerPlayer && i < inner * inner; i++) {
+			// walk the inner tiles in a scattered order
+			int index = (int) ((i * 7919L) % (inner * inner));
+			int x = 1 + index % inner, y = 1 + index / inner;
+			if (model.getTileAt(x, y).getUnit() != null || model.getTileAt(x, y).isCityTile()
+					|| model.getTileAt(x, y).getMovementModifier() < -1)
+				continue;
+			Player owner = placed % 2 == 0 ? human : cpu;
+			Warrior w = new Warrior(owner, new Point(x, y));
+			model.getTileAt(x, y).setUnit(w);
+			owner.addUnit(w);
+			BenchAccess.revealTiles(controller, w);
+			placed++;
+		}
+	}
+
+	/**
+	 * Units of the human player, in the order they were added.
+	 *
+	 * @return array of the human player's units
+	 */
+	Unit[] humanUnits() {
+		return human.getUnits().toArray(new Unit[0]);
+	}
+
+	/**
+	 * The player that is not the human one.
+	 *
+	 * @return the CPU Player
+	 */
+	private Player otherPlayer() {
+		for (Player p : model.getAllPlayers()) {
+			if (p != human)
+				return p;
+		}
+		throw new IllegalStateException("single player game without a CPU player");
+	}
+
+}
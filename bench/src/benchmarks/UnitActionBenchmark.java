@@ -0,0 +1,112 @@
+package benchmarks;
+
+import java.util.ArrayList;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import components.Tile;
+import components.Unit;
+import controllers.BenchAccess;
+import controllers.CivController;
+
+/**
+ * Per unit controller calls, cycling through the human player's units of a Skirmish.
+ * moveUnit walks each unit back and forth between its own tile and a free plains tile
+ * next to it, with its movement reset first so every call is a real move. Run with
+ * -prof gc to check that the move generation methods stay at 0 B/op.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class UnitActionBenchmark {
+
+	@Param({ "20", "200" })
+	public int size;
+
+	@Param({ "8", "64" })
+	public int units;
+
+	private CivController controller;
+	private Unit[] all;
+	private int next;
+	private final int[] moves = new int[8];
+
+	private Unit[] walkers;
+	private int[] home;
+	private int[] away;
+	private int nextWalker;
+
+	@Setup
+	public void setup() {
+		Skirmish game = new Skirmish(size, units);
+		controller = game.controller;
+		all = game.humanUnits();
+		// give each unit its own free neighbour to step onto and back from
+		ArrayList<Unit> found = new ArrayList<Unit>();
+		ArrayList<int[]> legs = new ArrayList<int[]>();
+		boolean[] taken = new boolean[size * size];
+		for (Unit u : all) {
+			for (int k = 0; k < 8; k++) {
+				int x = u.getX() + CivController.MOVE_DX[k], y = u.getY() + CivController.MOVE_DY[k];
+				if (x < 0 || y < 0 || x >= size || y >= size || taken[y * size + x])
+					continue;
+				Tile t = controller.getTileAt(x, y);
+				if (t.getUnit() != null || t.isCityTile() || t.getMovementModifier() != 0)
+					continue;
+				taken[y * size + x] = true;
+				found.add(u);
+				legs.add(new int[] { u.getY() * size + u.getX(), y * size + x });
+				break;
+			}
+		}
+		walkers = found.toArray(new Unit[0]);
+		home = new int[walkers.length];
+		away = new int[walkers.length];
+		for (int i = 0; i < walkers.length; i++) {
+			home[i] = legs.get(i)[0];
+			away[i] = legs.get(i)[1];
+		}
+	}
+
+	@Benchmark
+	public int validMoveMask() {
+		next = next + 1 == all.length ? 0 : next + 1;
+		return controller.getValidMoveMask(all[next]);
+	}
+
+	@Benchmark
+	public int validMovesIntoBuffer() {
+		next = next + 1 == all.length ? 0 : next + 1;
+		return controller.getValidMoves(all[next], moves);
+	}
+
+	@Benchmark
+	public boolean moveUnit() {
+		nextWalker = nextWalker + 1 == walkers.length ? 0 : nextWalker + 1;
+		Unit u = walkers[nextWalker];
+		int to = u.getY() * size + u.getX() == home[nextWalker] ? away[nextWalker] : home[nextWalker];
+		u.resetMovement();
+		return controller.moveUnit(u, to % size, to / size);
+	}
+
+	@Benchmark
+	public void revealTiles() {
+		next = next + 1 == all.length ? 0 : next + 1;
+		BenchAccess.revealTiles(controller, all[next]);
+	}
+
+}
@@ -0,0 +1,28 @@
+package controllers;
+
+import components.Unit;
+
+/**
+ * BenchAccess.java
+ *
+ * Gives the benchmarks the package-private controller methods they measure, without
+ * making those methods part of CivController's public API. Compiled only into the
+ * benchmark jar, next to the engine's own controllers package.
+ */
+public final class BenchAccess {
+
+	private BenchAccess() {
+	}
+
+	/**
+	 * Reveal the tiles in the unit's sight range for its owner, see
+	 * CivController.revealTiles().
+	 *
+	 * @param controller CivController of the game
+	 * @param unit       the Unit revealing tiles
+	 */
+	public static void revealTiles(CivController controller, Unit unit) {
+		controller.revealTiles(unit);
+	}
+
+}
@@ -1,11 +1,14 @@
 package components;
 
 import java.awt.Point;
+import java.io.IOException;
 import java.io.Serializable;
 import java.util.HashSet;
 import java.util.Set;
 
 import models.Player;
+import models.SaveReader;
+import models.SaveWriter;
 
 /**
  * Class which represents a City object including all of its internal components such
@@ -65,22 +68,11 @@ public class City implements Serializable{
 	 * @return Unit object that has been created for a player in a city
 	 */
 	public Unit produceUnit(String unitType) {
-		Unit retUnit = null;
 		if (unitType.equals("Settler")) {
 			// settlers decrease city population by 1
 			this.population -= 1;
-			retUnit = new Settler(owner, new Point(coord.x, coord.y));
-		} else if (unitType.equals("Scout")) {
-			retUnit = new Scout(owner, new Point(coord.x, coord.y));
-		} else if (unitType.equals("Warrior")) {
-			retUnit = new Warrior(owner, new Point(coord.x, coord.y));
-		} else if (unitType.equals("Militia")) {
-			retUnit = new Militia(owner, new Point(coord.x, coord.y));
-		} else if (unitType.equals("Cavalry")) {
-			retUnit = new Cavalry(owner, new Point(coord.x, coord.y));
-		} else if (unitType.equals("Swordsman")) {
-			retUnit = new Swordsman(owner, new Point(coord.x, coord.y));
 		}
+		Unit retUnit = Unit.create(unitType, owner, new Point(coord.x, coord.y));
 		this.productionReserve -= Unit.unitCosts.get(unitType);
 		return retUnit;
 	}
@@ -226,4 +218,49 @@ public class City implements Serializable{
 			producableUnits.add("Cavalry");
 	}
 
+	/**
+	 * Write this city's state to a save. The owner is saved by the caller.
+	 *
+	 * @param out SaveWriter to write to
+	 * @throws IOException if writing fails
+	 */
+	public void write(SaveWriter out) throws IOException {
+		out.putInt(coord.x);
+		out.putInt(coord.y);
+		out.putDouble(production);
+		out.putDouble(productionReserve);
+		out.putInt(turnsBeforeGrowth);
+		out.putInt(population);
+		out.putInt(controlRadius);
+		out.putDouble(cityHPMax);
+		out.putDouble(cityHPCur);
+		out.putInt(producableUnits.size());
+		for (String unit : producableUnits)
+			out.putString(unit);
+	}
+
+	/**
+	 * Read a city written by write().
+	 *
+	 * @param in    SaveReader to read from
+	 * @param owner Player the city belongs to
+	 * @return the City read
+	 * @throws IOException if reading fails
+	 */
+	public static City read(SaveReader in, Player owner) throws IOException {
+		City city = new City(owner, in.getInt(), in.getInt());
+		city.production = in.getDouble();
+		city.productionReserve = in.getDouble();
+		city.turnsBeforeGrowth = in.getInt();
+		city.population = in.getInt();
+		city.controlRadius = in.getInt();
+		city.cityHPMax = in.getDouble();
+		city.cityHPCur = in.getDouble();
+		city.producableUnits.clear();
+		int count = in.getCount(Unit.TYPES.length);
+		for (int i = 0; i < count; i++)
+			city.producableUnits.add(in.getString());
+		return city;
+	}
+
 }
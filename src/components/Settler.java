@@ -1,8 +1,11 @@
 package components;
 
 import java.awt.Point;
+import java.io.IOException;
 
 import models.Player;
+import models.SaveReader;
+import models.SaveWriter;
 
 /**
  * Basic setup for a settler unit, which can only move and found cities.
@@ -52,4 +55,15 @@ public class Settler extends Unit {
 		return 1;
 	}
 
-}
\ No newline at end of file
+	@Override
+	public void write(SaveWriter out) throws IOException {
+		super.write(out);
+		out.putInt(charges);
+	}
+
+	@Override
+	protected void readExtra(SaveReader in) throws IOException {
+		charges = in.getInt();
+	}
+
+}
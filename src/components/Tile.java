@@ -1,14 +1,16 @@
 package components;
 
 import java.io.Serializable;
-import java.util.ArrayList;
-import java.util.List;
 
+import models.CivBoard;
 import models.Player;
 
 /**
- * Class representing a single tile within our board. Contains fields representing
- * the tile type, modifiers, occupying unit, and who it is revealed to.
+ * Class representing a single tile within our board. Exposes the tile type, modifiers,
+ * occupying unit, and who it is revealed to.
+ * 
+ * A Tile is a lightweight view over one index of its CivBoard's packed tile layers, so
+ * any number of Tile objects for the same location see and change the same state.
  * 
  * Contains methods to reveal and occupy tile, and change the game state accordingly.
  *
@@ -21,36 +23,29 @@ public class Tile implements Serializable {
 		FIELD, HILL, SWAMP, WATER, MOUNTAIN
 	}
 
-	private terrainTypes terrainType;
-	private int movementBonus;
-	private double attackMult;
-	private String resourceType = null;
-	private City ownerCity = null;
-	private boolean isCityTile = false;
-	private Unit unitHere = null;
-	private List<Player> revealedTo = new ArrayList<Player>();
+	private final CivBoard board;
+	private final int index;
 
 	/**
 	 * When initially making a game, create every tile with a terrain type in mind.
-	 * This will allow for map creation.
+	 * This will allow for map creation. A tile made this way is backed by its own
+	 * single tile board.
 	 */
 	public Tile(terrainTypes terrainType, String resource) {
-		this.terrainType = terrainType;
-		this.resourceType = resource;
-		if (terrainType.equals(terrainTypes.HILL)) {
-			this.movementBonus = -1;
-			this.attackMult = 1.25;
-		} else if (terrainType.equals(terrainTypes.SWAMP)) {
-			this.movementBonus = -1;
-			this.attackMult = .75;
-		} else if (terrainType.equals(terrainTypes.FIELD)) {
-			this.movementBonus = 0;
-			this.attackMult = 1;
-		} else {
-			// terrain type is either a mountain or water, either way it is impassable.
-			this.movementBonus = -1000;
-			this.attackMult = 0;
-		}
+		this.board = new CivBoard(1, terrainType);
+		this.index = 0;
+		board.setTile(0, 0, terrainType, resource);
+	}
+
+	/**
+	 * View of the tile stored at index within the given board.
+	 *
+	 * @param board CivBoard holding the tile state
+	 * @param index y * size + x of the tile within the board
+	 */
+	public Tile(CivBoard board, int index) {
+		this.board = board;
+		this.index = index;
 	}
 
 	/**
@@ -60,23 +55,14 @@ public class Tile implements Serializable {
 	 * @return boolean representing whether city founding was a success
 	 */
 	public boolean foundCity(City city) {
-		if (this.ownerCity == null) { // && this.unitHere instanceOf Settler?
-			this.ownerCity = city;
-			this.isCityTile = true;
-			this.movementBonus = 0; // TODO: figure out bonuses for units in cities
-			this.attackMult = 1.25; // subject to change
-
-			return true;
-		}
-		return false;
+		return board.foundCity(index, city);
 	}
 
 	/**
 	 * remove a city from this tile
 	 */
 	public void destroyCity() {
-		this.isCityTile = false;
-		this.ownerCity = null;
+		board.destroyCity(index);
 	}
 
 	/**
@@ -84,7 +70,9 @@ public class Tile implements Serializable {
 	 * should have access to the resource.
 	 */
 	public void checkForNewResource() {
-		if (this.ownerCity != null && !resourceType.equals("")) {
+		City ownerCity = board.getOwnerCity(index);
+		String resourceType = board.getResourceType(index);
+		if (ownerCity != null && !resourceType.equals("")) {
 			ownerCity.unlockUnit(resourceType);
 		}
 	}
@@ -95,7 +83,7 @@ public class Tile implements Serializable {
 	 * @return The terrainType assigned to this tile
 	 */
 	public terrainTypes getTerrainType() {
-		return this.terrainType;
+		return board.getTerrainType(index);
 	}
 
 	/**
@@ -105,7 +93,7 @@ public class Tile implements Serializable {
 	 * @return int representing terrain bonus to be added to unit movement value
 	 */
 	public int getMovementModifier() {
-		return this.movementBonus;
+		return board.getMovementModifier(index);
 	}
 
 	/**
@@ -115,7 +103,7 @@ public class Tile implements Serializable {
 	 * @return double representing attack multiplier.
 	 */
 	public double getAttackModifier() {
-		return this.attackMult;
+		return board.getAttackModifier(index);
 	}
 
 	/**
@@ -125,7 +113,7 @@ public class Tile implements Serializable {
 	 *         is no resource.
 	 */
 	public String getResourceType() {
-		return this.resourceType;
+		return board.getResourceType(index);
 	}
 
 	/**
@@ -136,7 +124,7 @@ public class Tile implements Serializable {
 	 * @return City object representing the city which claims ownership of the tile
 	 */
 	public City getOwnerCity() {
-		return this.ownerCity;
+		return board.getOwnerCity(index);
 	}
 
 	/**
@@ -146,7 +134,7 @@ public class Tile implements Serializable {
 	 * @param city which now owns the tile
 	 */
 	public void setOwnerCity(City city) {
-		this.ownerCity = city;
+		board.setOwnerCity(index, city);
 	}
 
 	/**
@@ -156,7 +144,7 @@ public class Tile implements Serializable {
 	 * @return boolean representing if this tile contains a city.
 	 */
 	public boolean isCityTile() {
-		return this.isCityTile;
+		return board.isCityTile(index);
 	}
 	/**
 	 * Determine if this tile contains the city itself
@@ -165,7 +153,7 @@ public class Tile implements Serializable {
 	 */
 	public boolean isThisACity() {
 
-		return this.isCityTile;
+		return board.isCityTile(index);
 	}
 
 	/**
@@ -175,7 +163,7 @@ public class Tile implements Serializable {
 	 * @return Unit on this tile object, or null if the tile contains no unit.
 	 */
 	public Unit getUnit() {
-		return this.unitHere;
+		return board.getUnit(index);
 	}
 
 	/**
@@ -185,7 +173,7 @@ public class Tile implements Serializable {
 	 * @param unit that is now stationed here.
 	 */
 	public void setUnit(Unit unit) {
-		unitHere = unit;
+		board.setUnit(index, unit);
 	}
 
 	/**
@@ -195,7 +183,7 @@ public class Tile implements Serializable {
 	 * @return boolean representing whether the player passed in can see the tile
 	 */
 	public boolean canSeeTile(Player player) {
-		return revealedTo.contains(player);
+		return board.canSeeTile(index, player);
 	}
 
 	/**
@@ -204,7 +192,26 @@ public class Tile implements Serializable {
 	 * @param player Player that the tile will be revealed to.
 	 */
 	public void revealTile(Player player) {
-		revealedTo.add(player);
+		board.revealTile(index, player);
+	}
+
+	/**
+	 * Two tiles are equal when they view the same location of the same board.
+	 *
+	 * @param other object to compare against
+	 * @return true if other is a Tile for the same board location
+	 */
+	@Override
+	public boolean equals(Object other) {
+		if (!(other instanceof Tile))
+			return false;
+		Tile tile = (Tile) other;
+		return tile.board == this.board && tile.index == this.index;
+	}
+
+	@Override
+	public int hashCode() {
+		return System.identityHashCode(board) * 31 + index;
 	}
 
 }
@@ -1,11 +1,15 @@
 package components;
 
 import java.awt.Point;
+import java.io.IOException;
 import java.io.Serializable;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
 
 import models.Player;
+import models.SaveReader;
+import models.SaveWriter;
 
 /**
  *
@@ -21,14 +25,20 @@ import models.Player;
  */
 public class Unit implements Serializable {
 
-	public static final Map<String, Integer> unitCosts = new HashMap<String, Integer>();
+	/** every kind of unit, by the code a save stores it as */
+	public static final String[] TYPES = { "Settler", "Scout", "Warrior", "Militia", "Cavalry", "Swordsman" };
+
+	// read only so games on different threads can share it
+	public static final Map<String, Integer> unitCosts;
 	static {
-		unitCosts.put("Scout", 300);
-		unitCosts.put("Settler", 2000);
-		unitCosts.put("Warrior", 600);
-		unitCosts.put("Cavalry", 1000);
-		unitCosts.put("Swordsman", 900);
-		unitCosts.put("Militia", 100);
+		Map<String, Integer> costs = new HashMap<String, Integer>();
+		costs.put("Scout", 300);
+		costs.put("Settler", 2000);
+		costs.put("Warrior", 600);
+		costs.put("Cavalry", 1000);
+		costs.put("Swordsman", 900);
+		costs.put("Militia", 100);
+		unitCosts = Collections.unmodifiableMap(costs);
 	}
 
 	protected final Player owner;
@@ -41,6 +51,9 @@ public class Unit implements Serializable {
 	protected int remainingMovement;
 	protected double attackValue;
 	protected int sight;
+	// 1 + the owner's turn epoch HP and remainingMovement are up to date with, 0
+	// while the unit is not in its owner's list of units, see upkeep()
+	private transient int upkeepTurn;
 
 
 	/**
@@ -64,6 +77,7 @@ public class Unit implements Serializable {
 	 * @return boolean representing whether the move was a success.
 	 */
 	public void move(int cost, int x, int y) {
+		upkeep();
 		this.remainingMovement -= cost;
 		this.coord.x = x;
 		this.coord.y = y;
@@ -112,6 +126,7 @@ public class Unit implements Serializable {
 	 *         alive.
 	 */
 	public double getHP() {
+		upkeep();
 		return HP;
 	}
 
@@ -129,10 +144,14 @@ public class Unit implements Serializable {
 	 * Heal this unit by 5% of its max health
 	 */
 	public void healUnit() {
+		upkeep();
+		heal();
+	}
+
+	private void heal() {
 		this.HP += this.maxHP / 20;
 		if (this.HP >= this.maxHP)
 			this.HP = maxHP;
-		return;
 	}
 
 	/**
@@ -141,6 +160,7 @@ public class Unit implements Serializable {
 	 * @param damage double representing the amount of damage dealt to our unit HP
 	 */
 	public void takeAttack(double damage) {
+		upkeep();
 		this.HP -= damage;
 	}
 
@@ -152,15 +172,57 @@ public class Unit implements Serializable {
 	 *         over
 	 */
 	public int getMovement() {
+		upkeep();
 		return this.remainingMovement;
 	}
 
 
+	/**
+	 * Retrieve the movement this unit gets at the start of each turn
+	 *
+	 * @return int representing number of standard tiles the unit can move over in
+	 *         a full turn
+	 */
+	public int getMaxMovement() {
+		return this.maxMovement;
+	}
+
+
 	/**
 	 * Unit is done moving, reset its movement for next turn.
 	 */
 	public void resetMovement() {
+		upkeep();
+		this.remainingMovement = this.maxMovement;
+	}
+
+	/**
+	 * Catch up with the turns the owner started since this unit was last used: at
+	 * the start of each, the unit's movement was reset and it healed once, as
+	 * resetMovement() and healUnit() do. Starting a turn is then the same work for
+	 * a player of any number of units, see Player.startTurn().
+	 */
+	private void upkeep() {
+		if (upkeepTurn == 0)
+			return;
+		int turns = owner.getTurnEpoch() + 1 - upkeepTurn;
+		if (turns == 0)
+			return;
+		upkeepTurn += turns;
 		this.remainingMovement = this.maxMovement;
+		for (int i = 0; i < turns && this.HP != this.maxHP; i++) // healing stops at maxHP
+			heal();
+	}
+
+	/**
+	 * Told by the owner when this unit joins or leaves its list of units. Only a unit
+	 * in the list is kept up with the owner's turns.
+	 *
+	 * @param listed true if the unit joined the list, false if it left
+	 */
+	public void setListed(boolean listed) {
+		upkeep();
+		upkeepTurn = listed ? owner.getTurnEpoch() + 1 : 0;
 	}
 
 
@@ -193,4 +255,85 @@ public class Unit implements Serializable {
 		return this.sight;
 	}
 
+	/**
+	 * Make a new unit of the named type.
+	 *
+	 * @param unitType one of TYPES
+	 * @param player   player that owns the unit
+	 * @param coord    location the unit will appear
+	 * @return the new Unit, or null if unitType is not a kind of unit
+	 */
+	public static Unit create(String unitType, Player player, Point coord) {
+		if (unitType.equals("Settler"))
+			return new Settler(player, coord);
+		else if (unitType.equals("Scout"))
+			return new Scout(player, coord);
+		else if (unitType.equals("Warrior"))
+			return new Warrior(player, coord);
+		else if (unitType.equals("Militia"))
+			return new Militia(player, coord);
+		else if (unitType.equals("Cavalry"))
+			return new Cavalry(player, coord);
+		else if (unitType.equals("Swordsman"))
+			return new Swordsman(player, coord);
+		return null;
+	}
+
+	/**
+	 * Position of a kind of unit in TYPES, the number it is saved as.
+	 *
+	 * @param unitType one of TYPES
+	 * @return int index of unitType in TYPES, or -1 if it is not a kind of unit
+	 */
+	public static int typeIndex(String unitType) {
+		for (int i = 0; i < TYPES.length; i++)
+			if (TYPES[i].equals(unitType))
+				return i;
+		return -1;
+	}
+
+	/**
+	 * Write this unit's type and state to a save. The owner is saved by the caller;
+	 * stats that every unit of a type shares are not saved.
+	 *
+	 * @param out SaveWriter to write to
+	 * @throws IOException if writing fails
+	 */
+	public void write(SaveWriter out) throws IOException {
+		upkeep();
+		out.putByte(typeIndex(label));
+		out.putInt(coord.x);
+		out.putInt(coord.y);
+		out.putDouble(HP);
+		out.putInt(remainingMovement);
+	}
+
+	/**
+	 * Read a unit written by write().
+	 *
+	 * @param in    SaveReader to read from
+	 * @param owner Player the unit belongs to
+	 * @return the Unit read
+	 * @throws IOException if reading fails or the unit type is unknown
+	 */
+	public static Unit read(SaveReader in, Player owner) throws IOException {
+		int type = in.getByte();
+		if (type < 0 || type >= TYPES.length)
+			throw new IOException("corrupt save: unit type " + type);
+		Unit unit = create(TYPES[type], owner, new Point(in.getInt(), in.getInt()));
+		unit.HP = in.getDouble();
+		unit.remainingMovement = in.getInt();
+		unit.readExtra(in);
+		return unit;
+	}
+
+	/**
+	 * Read state that only some kinds of units have, written by their write().
+	 *
+	 * @param in SaveReader to read from
+	 * @throws IOException if reading fails
+	 */
+	protected void readExtra(SaveReader in) throws IOException {
+	}
+
 }
@@ -1,15 +1,19 @@
 package controllers;
 
 import java.awt.Point;
+import java.io.IOException;
 import java.util.ArrayList;
-import java.util.HashSet;
-import java.util.Iterator;
+import java.util.SplittableRandom;
 
 import components.City;
 import components.Settler;
 import components.Tile;
 import components.Unit;
+import models.Autosave;
+import models.CivBoard;
 import models.CivModel;
+import models.EventBus;
+import models.GameEvent;
 import models.Player;
 
 /**
@@ -23,8 +27,26 @@ import models.Player;
  */
 public class CivController {
 
+	/** x offset of each neighbouring tile, in the bit order of getValidMoveMask() */
+	public static final int[] MOVE_DX = { -1, -1, -1, 0, 0, 1, 1, 1 };
+	/** y offset of each neighbouring tile, in the bit order of getValidMoveMask() */
+	public static final int[] MOVE_DY = { -1, 0, 1, -1, 1, -1, 0, 1 };
+
 	private final CivModel model;
+	private final CivBoard board;
+	private final EventBus events;
+	private final PathFinder pathFinder;
+	private final FlowFields flowFields;
 	private Player curPlayer;
+	private SplittableRandom random = new SplittableRandom(0);
+	private TurnListener turnListener = new TurnListener() {
+	};
+	private int roundLimit = Integer.MAX_VALUE;
+	private Autosave autosave;
+	private int autosaveRounds;
+	private Journal journal;
+	private int checkpointRounds;
+	private boolean replaying;
 
 	/**
 	 * Constructor for controller
@@ -34,6 +56,10 @@ public class CivController {
 	 */
 	public CivController(CivModel model) {
 		this.model = model;
+		this.board = model.getCivBoard();
+		this.events = model.getEvents();
+		this.pathFinder = new PathFinder(board);
+		this.flowFields = new FlowFields(board);
 		curPlayer = model.getCurPlayer();
 	}
 
@@ -79,24 +105,20 @@ public class CivController {
 	 * events for a player turn
 	 *
 	 * All Units have their movement reset, all Cities owned by a Player are
-	 * incremented and updated. Do computer turn if it is the computer's turn.
+	 * incremented and updated. Do computer turn if it is the computer's turn, and
+	 * go on playing computer turns until a human's turn starts, see playTurns().
+	 * The whole turn, and the computer turns it leads to, is published as one
+	 * ModelChanged event when it is over.
 	 * 
 	 * @param player
 	 */
 	public void startTurn() {
-		curPlayer = model.getCurPlayer();
-		for (Unit u : curPlayer.getUnits()) {
-			u.resetMovement();
-			u.healUnit();
-		}
-		for (City c : curPlayer.getCities()) {
-			c.cityIncrement();
-			updateCity(c);
+		model.startBatch();
+		try {
+			playTurns();
+		} finally {
+			model.finishBatch();
 		}
-		// perform turn change
-		if (!curPlayer.isHuman())
-			computerTurn();
-		model.changeAndNotify();
 	}
 
 	/**
@@ -106,13 +128,145 @@ public class CivController {
 	 * accordingly.
 	 */
 	public void endTurn() {
-		if (gameOver()) {
-			model.changeAndNotify();
-			return;
+		model.startBatch();
+		try {
+			if (finishTurn())
+				playTurns();
+		} finally {
+			model.finishBatch();
+		}
+	}
+
+	/**
+	 * The turn loop: start the current player's turn, and while it is the computer's,
+	 * play it, end it and start the next one. Turns follow each other in this loop
+	 * rather than by calling each other, so a game of any length played by the
+	 * computer alone runs in constant stack. Returns once a human's turn has started,
+	 * the game is over or the round limit is reached.
+	 */
+	private void playTurns() {
+		do {
+			beginTurn();
+			if (curPlayer.isHuman() || replaying) // a replay plays the computer's recorded commands
+				return;
+			playComputerTurn();
+		} while (finishTurn());
+	}
+
+	/**
+	 * The housekeeping that starts a turn, see startTurn().
+	 */
+	private void beginTurn() {
+		curPlayer = model.getCurPlayer();
+		turnListener.turnStarted(curPlayer, model.roundNumber());
+		events.publish(new GameEvent.TurnStarted(curPlayer, model.roundNumber()));
+		if (model.tracksChanges()) { // hurt units are about to heal, so their HP bars change
+			for (Unit u : curPlayer.getUnits()) {
+				if (u.getHP() != u.getMaxHP())
+					model.markUnit(u);
+			}
+		}
+		curPlayer.startTurn(); // units reset their movement and heal when next used
+		for (City c : curPlayer.getCities()) {
+			c.cityIncrement();
+			updateCity(c);
+			model.markCity(c);
 		}
+	}
+
+	/**
+	 * End the current player's turn and move the model on to the next player.
+	 *
+	 * @return true if the next player's turn should start, false if the game is
+	 *         over, the round limit was reached or a journal is being replayed
+	 */
+	private boolean finishTurn() {
+		if (journal != null)
+			journal.recordEndTurn();
+		turnListener.turnEnded(curPlayer, model.roundNumber());
+		if (gameOver())
+			return false;
+		int round = model.roundNumber();
 		model.nextPlayer();
-		startTurn();
-		model.changeAndNotify();
+		if (autosave != null && model.roundNumber() != round && model.roundNumber() % autosaveRounds == 0)
+			autosave.save(model);
+		if (journal != null && checkpointRounds > 0 && model.roundNumber() != round
+				&& model.roundNumber() % checkpointRounds == 0)
+			checkpointJournal();
+		return model.roundNumber() < roundLimit && !replaying;
+	}
+
+	/**
+	 * Set the listener told about every turn that starts and ends from now on.
+	 *
+	 * @param listener TurnListener to notify
+	 */
+	public void setTurnListener(TurnListener listener) {
+		this.turnListener = listener;
+	}
+
+	/**
+	 * Autosave the game at the start of every few rounds from now on. The snapshot is
+	 * taken between two turns, and written to disk in the background.
+	 *
+	 * @param autosave Autosave to save through, null to stop autosaving
+	 * @param rounds   int of rounds between saves
+	 */
+	public void setAutosave(Autosave autosave, int rounds) {
+		if (rounds < 1)
+			throw new IllegalArgumentException("rounds between autosaves must be positive");
+		this.autosave = autosave;
+		this.autosaveRounds = rounds;
+	}
+
+	/**
+	 * Record every command of the game, the computer's included, to the journal from
+	 * now on. Must be set between two turns, after the journal's snapshot was taken.
+	 *
+	 * @param journal Journal to record to, null to stop recording
+	 * @param rounds  int of rounds between snapshots that start the journal over, 0
+	 *                to keep every command since the first snapshot
+	 */
+	public void setJournal(Journal journal, int rounds) {
+		if (rounds < 0)
+			throw new IllegalArgumentException("rounds between snapshots must not be negative");
+		this.journal = journal;
+		this.checkpointRounds = rounds;
+	}
+
+	/**
+	 * Start the journal over from a snapshot, dropping it if that fails so the game
+	 * goes on without one.
+	 */
+	private void checkpointJournal() {
+		try {
+			journal.checkpoint(model);
+		} catch (IOException e) {
+			e.printStackTrace();
+			journal = null;
+		}
+	}
+
+	/**
+	 * Play recorded commands instead of deciding them: the computer's turns are not
+	 * played, and ending a turn does not start the next one. Used by Journal.replay().
+	 *
+	 * @param replaying true while replaying a journal
+	 */
+	void setReplaying(boolean replaying) {
+		this.replaying = replaying;
+	}
+
+	/**
+	 * Stop the game once the model reaches the given round. endTurn() then leaves
+	 * the model at the start of that round instead of starting the next player's
+	 * turn, which matters for games where every seat is played by the computer and
+	 * no human ever stops the chain of turns.
+	 *
+	 * @param round int of the round not to start
+	 */
+	public void setRoundLimit(int round) {
+		this.roundLimit = round;
 	}
 
 	/**
@@ -143,7 +297,22 @@ public class CivController {
 	 * when all actions are completed.
 	 */
 	public void computerTurn() {
+		model.startBatch();
+		try {
+			playComputerTurn();
+			endTurn();
+		} finally {
+			model.finishBatch();
+		}
+	}
+
+	/**
+	 * The actions of computerTurn(), without ending the turn.
+	 */
+	private void playComputerTurn() {
 		// housekeeping
+		flowFields.beginTurn(curPlayer);
+		random = new SplittableRandom(model.turnSeed(curPlayer));
 		for (City c : curPlayer.getCities()) {
 			computerCityActions(c);
 		}
@@ -167,8 +336,6 @@ public class CivController {
 			if (curPlayer.getUnits().size() == oldSize)
 				i++;
 		}
-		model.changeAndNotify();
-		endTurn();
 	}
 
 	/**
@@ -184,22 +351,45 @@ public class CivController {
 	private void computerSettlerActions(Settler s) {
 		boolean founded = foundCity(s.getX(), s.getY()); // try to found a city
 		if (!founded) {
-			HashSet<int[]> validMoves = getValidMoves(s);
-			boolean moved = true;
-			while (validMoves.size() != 0 && moved) { // continue moving while able
-				moved = false;
-				for (int[] move : validMoves) { // random set of moves
-					if (getTileAt(move[0], move[1]).getUnit() == null) { // don't want to attack
-						moveUnit(s, move[0], move[1]);
-						moved = true;
-						break;
-					}
-				}
-				validMoves = getValidMoves(s);
+			int freeMoves = freeMoveMask(s);
+			while (freeMoves != 0) { // continue moving while able
+				int k = randomMove(freeMoves);
+				moveUnit(s, s.getX() + MOVE_DX[k], s.getY() + MOVE_DY[k]);
+				freeMoves = freeMoveMask(s);
 			}
 		}
 	}
 
+	/**
+	 * Moves the unit can make onto empty tiles, so without attacking.
+	 *
+	 * @param u the Unit to be moved
+	 * @return mask of moves as returned by getValidMoveMask()
+	 */
+	private int freeMoveMask(Unit u) {
+		int validMoves = getValidMoveMask(u);
+		for (int k = 0; k < 8; k++) {
+			if ((validMoves & (1 << k)) != 0
+					&& board.getUnit((u.getY() + MOVE_DY[k]) * board.getSize() + u.getX() + MOVE_DX[k]) != null)
+				validMoves &= ~(1 << k); // don't want to attack
+		}
+		return validMoves;
+	}
+
+	/**
+	 * Pick one of the moves in mask at random, drawing from this turn's seeded
+	 * generator so the same game seed always makes the same choices.
+	 *
+	 * @param mask moves as returned by getValidMoveMask(), must not be empty
+	 * @return k of the chosen move, for MOVE_DX[k] and MOVE_DY[k]
+	 */
+	private int randomMove(int mask) {
+		int skip = random.nextInt(Integer.bitCount(mask));
+		for (int i = 0; i < skip; i++)
+			mask &= mask - 1; // drop the lowest move
+		return Integer.numberOfTrailingZeros(mask);
+	}
+
 	/**
 	 * Actions that the computer takes for the first two non-settler units.
 	 * 
@@ -211,147 +401,143 @@ public class CivController {
 	 * @param u a Unit owned by the computer player defending computer's city
 	 */
 	private void computerDefenderActions(Unit u) {
-		HashSet<int[]> validMoves = getValidMoves(u);
-		if (getTileAt(u.getX(), u.getY()).isCityTile()) { // if newly created unit, move out of city
-			validMoves = getValidMoves(u);
-			for (int[] move : validMoves) {
-				moveUnit(u, move[0], move[1]);
-				break;
+		int size = board.getSize();
+		if (board.isCityTile(u.getY() * size + u.getX())) { // if newly created unit, move out of city
+			int validMoves = getValidMoveMask(u);
+			if (validMoves != 0) {
+				int k = randomMove(validMoves);
+				moveUnit(u, u.getX() + MOVE_DX[k], u.getY() + MOVE_DY[k]);
 			}
 		}
 		// the unit should be no more than one tile away from the city it's defending
-		Integer[] cityCoords = new Integer[] { -1, -1 };
+		int cityX = -1, cityY = -1;
 		for (int i = -1; i <= 1; i++) {
 			for (int j = -1; j <= 1; j++) {
-				Tile t = getTileAt(u.getX() + i, u.getY() + j);
-				if (t != null && t.isCityTile()) {
-					cityCoords[0] = u.getX() + i;
-					cityCoords[1] = u.getY() + j;
+				int x = u.getX() + i, y = u.getY() + j;
+				if (x >= 0 && y >= 0 && x < size && y < size && board.isCityTile(y * size + x)) {
+					cityX = x;
+					cityY = y;
 				}
 			}
 		}
-		validMoves = getValidMoves(u);
-		while (validMoves.size() != 0) { // continue moving while able
-			boolean moved = false;
-			for (int[] move : validMoves) {
-				// don't move too far away from the city
-				if (Math.abs(cityCoords[0] - move[0]) > 1 || Math.abs(cityCoords[1] - move[1]) > 1)
+		int validMoves = getValidMoveMask(u);
+		while (validMoves != 0) { // continue moving while able
+			// don't move too far away from the city or into the city
+			int goodMoves = 0;
+			for (int k = 0; k < 8; k++) {
+				if ((validMoves & (1 << k)) == 0)
 					continue;
-				// don't move into the city
-				if (cityCoords[0] == move[0] && cityCoords[1] == move[1])
+				int moveX = u.getX() + MOVE_DX[k], moveY = u.getY() + MOVE_DY[k];
+				if (Math.abs(cityX - moveX) > 1 || Math.abs(cityY - moveY) > 1)
 					continue;
-				if (getTileAt(move[0], move[1]).getUnit() != null) { // always want to attack
-					moveUnit(u, move[0], move[1]);
-					moved = true;
-					break;
-				}
+				if (cityX == moveX && cityY == moveY)
+					continue;
+				goodMoves |= 1 << k;
 			}
-			if (!moved) {
-				for (int[] move : validMoves) {
-					// don't move too far away from the city
-					if (Math.abs(cityCoords[0] - move[0]) > 1 || Math.abs(cityCoords[1] - move[1]) > 1)
-						continue;
-					// don't move into the city
-					if (cityCoords[0] == move[0] && cityCoords[1] == move[1])
-						continue;
-					moveUnit(u, move[0], move[1]); // take the first good move
-					moved = true;
+			if (goodMoves == 0)
+				return;
+			int move = randomMove(goodMoves); // take any good move
+			for (int k = 0; k < 8; k++) {
+				if ((goodMoves & (1 << k)) != 0
+						&& board.getUnit((u.getY() + MOVE_DY[k]) * size + u.getX() + MOVE_DX[k]) != null) {
+					move = k; // always want to attack
 					break;
 				}
 			}
-			if (!moved)
-				return;
-			validMoves = getValidMoves(u);
+			moveUnit(u, u.getX() + MOVE_DX[move], u.getY() + MOVE_DY[move]);
+			validMoves = getValidMoveMask(u);
 		}
 	}
 
 	/**
 	 * Actions for computer units that move towards and attack enemy cities.
 	 * 
-	 * Find the closest enemy city and move towards it by calling the moveTowards()
-	 * method.
+	 * Find the closest enemy city through the model's city index and move towards
+	 * it by calling the moveTowards() method.
 	 *
 	 * @param u a Unit owned by the computer player attacking enemy city
 	 */
 	private void computerAttackerActions(Unit u) {
-		// search the entire map for the user's closest city
-		Integer[] closest = new Integer[] { -1, -1 };
-		int minDist = Integer.MAX_VALUE;
-		// brute force approach, maps cannot be large enough for this to impact runtime
-		for (int i = 0; i < model.getSize(); i++) {
-			for (int j = 0; j < model.getSize(); j++) {
-				Tile t = getTileAt(i, j);
-				if (t.isCityTile()) {
-					City c = t.getOwnerCity();
-					if (c.getOwner() != curPlayer) {
-						int dist = Math.max(Math.abs(c.getX() - u.getX()), Math.abs(c.getY() - u.getY()));
-						if (dist < minDist) {
-							minDist = dist;
-							closest[0] = c.getX();
-							closest[1] = c.getY();
-						}
-					}
-				}
-			}
-		}
-		if (closest[0] == -1) // no cities left to attack, edge case
+		City closest = model.getCityIndex().nearestEnemyCity(curPlayer, u.getX(), u.getY());
+		if (closest == null) // no cities left to attack, edge case
 			return;
-		moveTowards(u, closest);
+		moveTowards(u, new Integer[] { closest.getX(), closest.getY() });
 	}
 
 	/**
-	 * Moves the unit towards the target coords by searching for the ideal move
-	 * first, then choosing any good move, and moving randomly if there is no "good"
-	 * move. If target is in range, attack target.
+	 * Moves the unit towards the target coords along the flow field shared by every
+	 * unit heading for that target this turn. If target is in range, attack target.
 	 *
-	 * If y distance to target is greater than x distance, move in the y direction,
-	 * and vice versa. If equal, move diagonally. If no move exists for these
-	 * "better" choices, choose a random move. Continue moving until the unit's
-	 * movement is fully depleted.
+	 * If the unit lacks the movement to enter the next tile of its route, it waits
+	 * for the next turn instead of wandering off the route. If friendly units block
+	 * every step that gets closer, ask the path finder for a way around them, and if
+	 * there is none take a greedy step with moveGreedy(). Continue moving until the
+	 * unit's movement is fully depleted.
 	 *
 	 * @param u      the Unit to be moved
 	 * @param target Integer[] of size 2 representing the x,y target location that
 	 *               the unit is to be moved towards
 	 */
 	private void moveTowards(Unit u, Integer[] target) {
-		HashSet<int[]> validMoves = getValidMoves(u);
-		while (validMoves.size() != 0) {
+		int size = model.getSize();
+		int validMoves = getValidMoveMask(u);
+		while (validMoves != 0) {
 			if (getTileAt(target[0], target[1]).getOwnerCity() == null)
 				return;
-			int xDiff = target[0] - u.getX();
-			int yDiff = target[1] - u.getY();
-			int priority = 0; // give x direction priority
-			if (Math.abs(yDiff) > Math.abs(xDiff))
-				priority = 1; // y diff is greater, so give y priority
-			int goodX = Integer.signum(xDiff) + u.getX(); // ideal x to go to
-			int goodY = Integer.signum(yDiff) + u.getY(); // ideal y to go to
-			boolean moved = false;
-			for (int[] move : validMoves) { // loop for the ideal move
-				if ((move[0] == target[0] && move[1] == target[1]) || // city, attack
-						move[0] == goodX && move[1] == goodY) { // ideal move
-					moveUnit(u, move[0], move[1]);
-					moved = true;
-					break;
-				}
-			}
-			if (!moved) { // if not moved, loop again for good move
-				for (int[] move : validMoves) {
-					if ((priority == 0 && move[0] == goodX) || (priority == 1 && move[1] == goodY)) {
-						moveUnit(u, move[0], move[1]);
-						moved = true;
-						break;
-					}
-				}
-			}
-			// got through all the moves and didn't move, just make a random move
-			if (!moved) {
-				Iterator<int[]> iterator = validMoves.iterator();
-				int[] move = iterator.next();
-				moveUnit(u, move[0], move[1]);
+			int step = flowFields.nextStep(u, target[0], target[1]);
+			if (step < 0)
+				step = pathFinder.nextStep(u, target[0], target[1]);
+			if (step >= 0) {
+				int stepX = step % size, stepY = step / size;
+				if (1 - getTileAt(stepX, stepY).getMovementModifier() > u.getMovement())
+					return; // can't afford the next tile this turn, wait on the route
+				moveUnit(u, stepX, stepY);
+			} else {
+				moveGreedy(u, target, validMoves);
 			}
-			validMoves = getValidMoves(u);
+			validMoves = getValidMoveMask(u);
 		}
+	}
 
+	/**
+	 * Moves the unit one step towards the target coords by searching for the ideal
+	 * move first, then choosing any good move, and moving randomly if there is no
+	 * "good" move. Used when the path finder finds no route to the target.
+	 *
+	 * If y distance to target is greater than x distance, move in the y direction,
+	 * and vice versa. If equal, move diagonally. If no move exists for these
+	 * "better" choices, choose a random move.
+	 *
+	 * @param u          the Unit to be moved
+	 * @param target     Integer[] of size 2 representing the x,y target location
+	 *                   that the unit is to be moved towards
+	 * @param validMoves mask of the moves the unit can currently make, as returned by
+	 *                   getValidMoveMask(), must not be empty
+	 */
+	private void moveGreedy(Unit u, Integer[] target, int validMoves) {
+		int xDiff = target[0] - u.getX();
+		int yDiff = target[1] - u.getY();
+		int priority = 0; // give x direction priority
+		if (Math.abs(yDiff) > Math.abs(xDiff))
+			priority = 1; // y diff is greater, so give y priority
+		int goodX = Integer.signum(xDiff) + u.getX(); // ideal x to go to
+		int goodY = Integer.signum(yDiff) + u.getY(); // ideal y to go to
+		int move = -1;
+		for (int k = 0; k < 8 && move < 0; k++) { // loop for the ideal move
+			int moveX = u.getX() + MOVE_DX[k], moveY = u.getY() + MOVE_DY[k];
+			if ((validMoves & (1 << k)) != 0 && ((moveX == target[0] && moveY == target[1]) || // city, attack
+					moveX == goodX && moveY == goodY)) // ideal move
+				move = k;
+		}
+		for (int k = 0; k < 8 && move < 0; k++) { // if not moved, loop again for good move
+			int moveX = u.getX() + MOVE_DX[k], moveY = u.getY() + MOVE_DY[k];
+			if ((validMoves & (1 << k)) != 0 && ((priority == 0 && moveX == goodX) || (priority == 1 && moveY == goodY)))
+				move = k;
+		}
+		// got through all the moves and didn't move, just take any move
+		if (move < 0)
+			move = randomMove(validMoves);
+		moveUnit(u, u.getX() + MOVE_DX[move], u.getY() + MOVE_DY[move]);
 	}
 
 	/**
@@ -390,10 +576,12 @@ public class CivController {
 		if (cost + 1 > movement)
 			return false;
 		Unit onTile = moveTo.getUnit();
+		if (onTile != null && onTile.getOwner().equals(curPlayer))
+			return false;
+		if (journal != null)
+			journal.recordMove(oldX, oldY, newX, newY);
 		boolean movesOnto = true;
 		if (onTile != null) { // unit exists here, attack it
-			if (onTile.getOwner().equals(curPlayer))
-				return false;
 			movesOnto = attack(moveFrom, moveTo);
 			cost = toMove.getMovement() - 1; // have to deplete to if successful move
 		} else if (moveTo.isCityTile() && !moveTo.getOwnerCity().getOwner().equals(curPlayer)) // city, attack
@@ -402,8 +590,10 @@ public class CivController {
 			moveFrom.setUnit(null); // unit gone
 			moveTo.setUnit(toMove); // successfully moves to new tile
 			toMove.move(cost + 1, newX, newY); // update costs and unit location
+			events.publish(new GameEvent.UnitMoved(toMove, oldX, oldY, newX, newY));
 			revealTiles(toMove); // reveal tiles around unit
 		}
+		model.markUnit(toMove);
 		model.changeAndNotify();
 		if (moveTo.getUnit() != null) { // died in counterattack
 			if (moveTo.getUnit().getOwner() != curPlayer && moveFrom.getUnit() == null) {
@@ -415,21 +605,17 @@ public class CivController {
 
 	/**
 	 * Set all the tiles in the unit's sight range around the given location as
-	 * revealed for that unit's owner.
+	 * revealed for that unit's owner, a row of fog bits at a time.
 	 *
 	 * @param unit the Unit who is revealing tiles
 	 */
-	private void revealTiles(Unit unit) {
+	void revealTiles(Unit unit) {
 		int sight = unit.getSight();
-		for (int i = -sight; i <= sight; i++) {
-			for (int j = -sight; j <= sight; j++) {
-				int toRevealRow = unit.getX() + i;
-				int toRevealCol = unit.getY() + j;
-				Tile toRevealTile = getTileAt(toRevealRow, toRevealCol);
-				if (toRevealTile != null && !toRevealTile.canSeeTile(unit.getOwner()))
-					toRevealTile.revealTile(unit.getOwner());
-			}
-		}
+		model.getFog().revealArea(unit.getOwner(), unit.getX() - sight, unit.getY() - sight,
+				unit.getX() + sight, unit.getY() + sight);
+		model.markFog();
+		events.publish(new GameEvent.TilesRevealed(unit.getOwner(), unit.getX() - sight, unit.getY() - sight,
+				unit.getX() + sight, unit.getY() + sight));
 	}
 
 	/**
@@ -452,10 +638,13 @@ public class CivController {
 		double attack = attacker.getAttackValue();
 		attack *= attackerTile.getAttackModifier();
 		defender.takeAttack(attack);
+		model.markUnit(defender);
 		// attacker strikes first
 		if ((int) defender.getHP() <= 0) {
 			defenderTile.setUnit(null);
 			defender.getOwner().removeUnit(defender);
+			model.markPlayer(defender.getOwner());
+			events.publish(new GameEvent.CombatResolved(attacker, defender, null, false, true));
 			return !defenderTile.isCityTile();
 		}
 		double counterattack = defender.getAttackValue();
@@ -466,9 +655,12 @@ public class CivController {
 			attacker.move(attacker.getMovement(), attacker.getX(), attacker.getY());
 			curPlayer.removeUnit(attacker);
 			attackerTile.setUnit(null);
+			model.markPlayer(curPlayer);
+			events.publish(new GameEvent.CombatResolved(attacker, defender, null, true, false));
 			return false;
 		}
 		attacker.move(attacker.getMovement(), attacker.getX(), attacker.getY()); // failed move
+		events.publish(new GameEvent.CombatResolved(attacker, defender, null, false, false));
 		return false;
 	}
 
@@ -488,15 +680,21 @@ public class CivController {
 		double attack = attacker.getAttackValue();
 		attack *= attackerTile.getAttackModifier();
 		defender.takeAttack(attack);
-		if ((int) defender.getRemainingHP() <= 0) {
+		model.markCity(defender);
+		boolean destroyed = (int) defender.getRemainingHP() <= 0;
+		if (destroyed) {
 			getTileAt(defender.getX(), defender.getY()).destroyCity();
 			Player lostACity = defender.getOwner();
 			lostACity.removeCity(defender);
+			model.markPlayer(lostACity);
 			if (lostACity.getCities().size() == 0) {
 				model.removePlayer(lostACity); // player has no cities left, remove from game
 			}
 		}
 		attacker.move(attacker.getMovement(), attacker.getX(), attacker.getY()); // set move to 0
+		events.publish(new GameEvent.CombatResolved(attacker, null, defender, false, destroyed));
+		if (destroyed)
+			events.publish(new GameEvent.CityDestroyed(defender));
 		return false;
 	}
 
@@ -516,6 +714,17 @@ public class CivController {
 	 * @return true if the unit was successfully created; false otherwise
 	 */
 	public boolean createUnit(int x, int y, String unitType) {
+		boolean created = produceUnit(x, y, unitType);
+		if (created && journal != null)
+			journal.recordCreate(x, y, unitType);
+		return created;
+	}
+
+	/**
+	 * Does the work of createUnit() without recording it, for commands that create
+	 * units as part of something else.
+	 */
+	private boolean produceUnit(int x, int y, String unitType) {
 		Tile tile = getTileAt(x, y);
 		City city = tile.getOwnerCity();
 		if (city.getProductionReserve() >= Unit.unitCosts.get(unitType) && tile.getUnit() == null
@@ -524,6 +733,8 @@ public class CivController {
 			tile.setUnit(newUnit);
 			newUnit.move(newUnit.getMovement(), x, y);
 			city.getOwner().addUnit(newUnit);
+			model.markUnit(newUnit);
+			model.markPlayer(city.getOwner());
 			model.changeAndNotify();
 			return true;
 		}
@@ -549,7 +760,12 @@ public class CivController {
 			tile.foundCity(city);
 			curPlayer.removeUnit(settler);
 			tile.setUnit(null);
-			createUnit(x, y, "Scout");
+			produceUnit(x, y, "Scout");
+			if (journal != null)
+				journal.recordFound(x, y);
+			model.markCity(city);
+			model.markPlayer(curPlayer);
+			events.publish(new GameEvent.CityFounded(city));
 			model.changeAndNotify();
 			return true;
 		}
@@ -591,44 +807,92 @@ public class CivController {
 	}
 
 	/**
-	 * Returns a set of all the valid moves that the given unit can currently make.
+	 * Returns a mask of all the valid moves that the given unit can currently make.
 	 *
 	 * A unit can move onto a tile if it has enough movement left based on the cost
 	 * of moving (1) and the movement modifier for the tile. A unit can "move" onto
 	 * (attack) a tile with an enemy unit or enemy city but cannot move onto a tile
-	 * with a friendly unit.
+	 * with a friendly unit. Allocates nothing.
 	 *
 	 * @param unit the Unit whose valid moves are to be retrieved
-	 * @return HashSet of int[]s representing all the valid moves for the given
-	 *         unit, where each int[] is of length two holding (x, y) coords
+	 * @return int where bit k is set if the unit can move to (x + MOVE_DX[k], y +
+	 *         MOVE_DY[k])
 	 */
-	public HashSet<int[]> getValidMoves(Unit unit) {
-		HashSet<int[]> moves = new HashSet<int[]>();
+	public int getValidMoveMask(Unit unit) {
+		int size = board.getSize();
 		int curX = unit.getX(), curY = unit.getY();
-		for (int i = -1; i < 2; i++) {
-			for (int j = -1; j < 2; j++) {
-				int newX = curX + i, newY = curY + j;
-				int movement = unit.getMovement();
-				Tile moveTo = getTileAt(newX, newY);
-				if (moveTo != null) {
-					int cost = -moveTo.getMovementModifier();
-					if (cost + 1 <= movement) {
-						Unit unitOnMoveTile = moveTo.getUnit();
-						if (unitOnMoveTile == null || unitOnMoveTile.getOwner() != curPlayer)
-							moves.add(new int[] { newX, newY });
-					}
-				}
+		int movement = unit.getMovement();
+		int mask = 0;
+		for (int k = 0; k < 8; k++) {
+			int newX = curX + MOVE_DX[k], newY = curY + MOVE_DY[k];
+			if (newX < 0 || newX >= size || newY < 0 || newY >= size)
+				continue;
+			int index = newY * size + newX;
+			int cost = -board.getMovementModifier(index);
+			if (cost + 1 <= movement) {
+				Unit unitOnMoveTile = board.getUnit(index);
+				if (unitOnMoveTile == null || unitOnMoveTile.getOwner() != curPlayer)
+					mask |= 1 << k;
 			}
 		}
-		return moves;
+		return mask;
+	}
+
+	/**
+	 * Writes all the valid moves that the given unit can currently make into moves,
+	 * each packed as y * size + x, in the same order as getValidMoveMask(). Allocates
+	 * nothing.
+	 *
+	 * @param unit  the Unit whose valid moves are to be retrieved
+	 * @param moves buffer of at least 8 ints receiving the moves
+	 * @return number of moves written
+	 */
+	public int getValidMoves(Unit unit, int[] moves) {
+		int size = board.getSize();
+		int mask = getValidMoveMask(unit);
+		int count = 0;
+		for (int k = 0; k < 8; k++) {
+			if ((mask & (1 << k)) != 0)
+				moves[count++] = (unit.getY() + MOVE_DY[k]) * size + unit.getX() + MOVE_DX[k];
+		}
+		return count;
 	}
 
 	/**
-	 * Closes the game and saves the current game state.
+	 * Finds the cheapest route for the unit to x, y, for "go-to" style orders that
+	 * span several turns. See PathFinder for how routes are costed.
+	 *
+	 * @param unit the Unit that would walk the route
+	 * @param x    int of x location to route to
+	 * @param y    int of y location to route to
+	 * @param path buffer receiving the route as packed y * size + x tiles, first
+	 *             step first
+	 * @return number of steps in the route, or -1 if x, y cannot be reached
+	 */
+	public int findPath(Unit unit, int x, int y, int[] path) {
+		return pathFinder.findPath(unit, x, y, path);
+	}
+
+	/**
+	 * Closes the game and saves the current game state. An autosave still being
+	 * written is finished first. A game with a journal is already saved in it, so
+	 * only the journal is closed; the whole game is written to save_game.dat
+	 * otherwise.
 	 * 
 	 * @return true if the game was successfully saved, false otherwise
 	 */
 	public boolean close() {
+		if (autosave != null)
+			autosave.close();
+		if (journal != null) {
+			try {
+				journal.close();
+				if (journal.getFailure() == null)
+					return true;
+			} catch (IOException e) {
+				e.printStackTrace();
+			}
+		}
 		return this.model.done();
 	}
 
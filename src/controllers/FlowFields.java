@@ -0,0 +1,214 @@
+package controllers;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+
+import components.Unit;
+import models.CivBoard;
+import models.Player;
+
+/**
+ * FlowFields.java
+ *
+ * Shared routing for every unit of one player marching on the same targets. For each target
+ * tile a Dijkstra search is run once per turn outwards from the target, giving every tile
+ * of the board its movement cost to reach the target. A unit then picks its next step by
+ * looking at the costs of its eight neighbours, so the cost of a turn grows with the number
+ * of targets rather than the number of units.
+ *
+ * Costs follow the same rules as PathFinder: entering a tile costs 1 minus its movement
+ * modifier, tiles the unit could never afford are impassable, and so are enemy cities other
+ * than the target. Units are not part of a field since they move during the turn; friendly
+ * ones are stepped around when picking a step, and moving onto enemy ones is an attack.
+ * Units that can never enter hills or swamps get their own field.
+ *
+ * @field board CivBoard the fields cover
+ * @field player Player whose units the fields are built for this turn
+ * @field turn incremented by beginTurn(), fields built in an earlier turn are rebuilt
+ * @field fields every field built so far, reused across turns while their target is wanted
+ * @field open heap reused by every Dijkstra search
+ */
+public class FlowFields {
+
+	/** cost of tiles from which the target cannot be reached */
+	public static final int UNREACHABLE = Integer.MAX_VALUE;
+
+	private final CivBoard board;
+	private Player player;
+	private int turn;
+	private final ArrayList<Field> fields = new ArrayList<Field>();
+	private TileHeap open;
+
+	/**
+	 * Create flow fields over the given board.
+	 *
+	 * @param board CivBoard that fields will cover
+	 */
+	public FlowFields(CivBoard board) {
+		this.board = board;
+	}
+
+	/**
+	 * Start a new turn for player. Every field is rebuilt the first time it is asked for
+	 * during the turn, and fields that went unused for a whole turn are dropped.
+	 *
+	 * @param player Player whose units will be routed this turn
+	 */
+	public void beginTurn(Player player) {
+		this.player = player;
+		this.turn++;
+		fields.removeIf(f -> f.builtTurn < turn - 1);
+	}
+
+	/**
+	 * Pick the neighbouring tile that brings unit closest to targetX, targetY. Tiles held
+	 * by a friendly unit are skipped. The unit may lack the movement to enter the returned
+	 * tile this turn, in which case it is best off waiting.
+	 *
+	 * @param unit    the Unit to be moved
+	 * @param targetX int of x location the unit is heading for
+	 * @param targetY int of y location the unit is heading for
+	 * @return packed y * size + x of the step, or -1 if no neighbour gets the unit closer
+	 */
+	public int nextStep(Unit unit, int targetX, int targetY) {
+		int size = board.getSize();
+		int[] dist = field(targetY * size + targetX, unit.getMaxMovement() >= 2).dist;
+		int x = unit.getX(), y = unit.getY();
+		int best = -1;
+		int bestDist = dist[y * size + x];
+		for (int dx = -1; dx <= 1; dx++) {
+			for (int dy = -1; dy <= 1; dy++) {
+				int nx = x + dx, ny = y + dy;
+				if ((dx == 0 && dy == 0) || nx < 0 || ny < 0 || nx >= size || ny >= size)
+					continue;
+				int next = ny * size + nx;
+				if (dist[next] >= bestDist)
+					continue;
+				Unit occupant = board.getUnit(next);
+				if (occupant != null && occupant.getOwner() == unit.getOwner())
+					continue;
+				best = next;
+				bestDist = dist[next];
+			}
+		}
+		return best;
+	}
+
+	/**
+	 * Movement cost for a unit standing on x,y to reach the target.
+	 *
+	 * @param targetX     int of x location of the target
+	 * @param targetY     int of y location of the target
+	 * @param x           int of x location of the unit
+	 * @param y           int of y location of the unit
+	 * @param maxMovement the unit's full movement
+	 * @return cost to reach the target, UNREACHABLE if it cannot be reached
+	 */
+	public int distance(int targetX, int targetY, int x, int y, int maxMovement) {
+		int size = board.getSize();
+		return field(targetY * size + targetX, maxMovement >= 2).dist[y * size + x];
+	}
+
+	/**
+	 * Get the field towards target for this turn, building it if needed.
+	 *
+	 * @param target     packed target tile
+	 * @param canClimb   true for units able to enter tiles costing 2
+	 * @return the up to date field
+	 */
+	private Field field(int target, boolean canClimb) {
+		Field field = null;
+		for (Field f : fields) {
+			if (f.target == target && f.canClimb == canClimb) {
+				field = f;
+				break;
+			}
+		}
+		if (field == null) {
+			field = new Field(target, canClimb, board.getSize() * board.getSize());
+			fields.add(field);
+		}
+		if (field.builtTurn != turn) {
+			build(field);
+			field.builtTurn = turn;
+		}
+		return field;
+	}
+
+	/**
+	 * Run Dijkstra outwards from the field's target. The cost of a tile is the cost of
+	 * entering the neighbour it steps to plus that neighbour's cost.
+	 *
+	 * @param field the Field to fill in
+	 */
+	private void build(Field field) {
+		int size = board.getSize();
+		int[] dist = field.dist;
+		Arrays.fill(dist, UNREACHABLE);
+		if (open == null)
+			open = new TileHeap(size * 8);
+		open.clear();
+		dist[field.target] = 0;
+		open.push(0, field.target);
+		while (!open.isEmpty()) {
+			int d = open.peekPriority();
+			int cur = open.pop();
+			if (d > dist[cur])
+				continue; // stale entry
+			int enterCost = 1 - board.getMovementModifier(cur);
+			int cx = cur % size, cy = cur / size;
+			for (int dx = -1; dx <= 1; dx++) {
+				for (int dy = -1; dy <= 1; dy++) {
+					int nx = cx + dx, ny = cy + dy;
+					if ((dx == 0 && dy == 0) || nx < 0 || ny < 0 || nx >= size || ny >= size)
+						continue;
+					int next = ny * size + nx;
+					if (!passable(next, field.canClimb))
+						continue;
+					int nd = d + enterCost;
+					if (nd < dist[next]) {
+						dist[next] = nd;
+						open.push(nd, next);
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * Whether a unit of this turn's player could stand on and leave the tile at index on
+	 * its way to a target.
+	 *
+	 * @param index    packed tile
+	 * @param canClimb true for units able to enter tiles costing 2
+	 * @return true if the tile can be part of a route
+	 */
+	private boolean passable(int index, boolean canClimb) {
+		int cost = 1 - board.getMovementModifier(index);
+		if (cost > (canClimb ? 2 : 1))
+			return false;
+		return !board.isCityTile(index) || board.getOwnerCity(index).getOwner() == player;
+	}
+
+	/**
+	 * Costs towards one target for one class of unit.
+	 *
+	 * @field target packed target tile
+	 * @field canClimb true if built for units able to enter tiles costing 2
+	 * @field dist cost of every tile to reach the target
+	 * @field builtTurn turn the costs were last computed in
+	 */
+	private static class Field {
+		final int target;
+		final boolean canClimb;
+		final int[] dist;
+		int builtTurn = -1;
+
+		private Field(int target, boolean canClimb, int tiles) {
+			this.target = target;
+			this.canClimb = canClimb;
+			this.dist = new int[tiles];
+		}
+	}
+
+}
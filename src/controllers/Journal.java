@@ -0,0 +1,295 @@
+package controllers;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+import components.Tile;
+import components.Unit;
+import models.CivModel;
+import models.SaveReader;
+import models.SaveWriter;
+
+/**
+ * Journal.java
+ *
+ * Append-only record of a game: a snapshot of the game taken between two turns,
+ * followed by every command that changed the game since, for every player, the
+ * computer included. Saving a game that has a journal therefore costs as much as the
+ * commands played, not as much as the board. Loading it replays the commands on the
+ * snapshot, and because the computer's commands are recorded too, replay() never runs
+ * the computer's turn logic and fast-forwards a game at the speed of the engine alone.
+ *
+ * The file is laid out, big endian, as
+ *
+ * 	header   int "CIVJ", short version, int length of the snapshot
+ * 	snapshot a save in the binary format of SaveFormat
+ * 	commands one byte naming the command, then its arguments as shorts:
+ * 	         MOVE from x, from y, to x, to y
+ * 	         CREATE x, y, then the unit type as an index into Unit.TYPES
+ * 	         FOUND x, y
+ * 	         END_TURN
+ *
+ * Each command is handed to the file system as soon as it is recorded, so a game that
+ * crashes can be replayed up to the command that crashed it. A command cut short by
+ * the crash is ignored.
+ *
+ * @field MAGIC first int of a journal
+ * @field VERSION of the journal layout written
+ * @field file Path the journal is written to
+ * @field channel FileChannel appending to the file
+ * @field out SaveWriter over channel
+ * @field commands number of commands recorded since the last snapshot
+ * @field failure error that stopped the journal, null while it is being written
+ */
+public class Journal implements AutoCloseable {
+
+	public static final int MAGIC = 0x4349564A; // "CIVJ"
+	public static final int VERSION = 1;
+
+	static final int MOVE = 1;
+	static final int CREATE = 2;
+	static final int FOUND = 3;
+	static final int END_TURN = 4;
+
+	private final Path file;
+	private FileChannel channel;
+	private SaveWriter out;
+	private int commands;
+	private IOException failure;
+
+	/**
+	 * Start a journal of the game, replacing whatever the file held. Must be called
+	 * between two turns, before the current player's turn is started.
+	 *
+	 * @param file  Path to write the journal to
+	 * @param model CivModel of the game to record
+	 * @throws IOException if the journal cannot be written
+	 */
+	public Journal(Path file, CivModel model) throws IOException {
+		this.file = file.toAbsolutePath();
+		checkpoint(model);
+	}
+
+	/**
+	 * Start the journal over from a new snapshot of the game, dropping the commands
+	 * recorded so far. The new journal is written next to the file and then moved over
+	 * it, so the file always holds a complete journal. Must be called between two
+	 * turns, before the current player's turn is started.
+	 *
+	 * If this fails the file is deleted, so a journal that no longer records the game
+	 * is never loaded in its place.
+	 *
+	 * @param model CivModel of the game recorded
+	 * @throws IOException if the journal cannot be written
+	 */
+	public void checkpoint(CivModel model) throws IOException {
+		try {
+			writeSnapshot(model.snapshot(System.currentTimeMillis()));
+		} catch (IOException e) {
+			failure = e;
+			close();
+			throw e;
+		}
+		failure = null;
+	}
+
+	private void writeSnapshot(byte[] snapshot) throws IOException {
+		if (channel != null)
+			channel.close();
+		Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+		try (FileChannel fresh = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+				StandardOpenOption.TRUNCATE_EXISTING)) {
+			SaveWriter header = new SaveWriter(fresh);
+			header.putInt(MAGIC);
+			header.putShort(VERSION);
+			header.putInt(snapshot.length);
+			header.putBytes(snapshot);
+			header.flush();
+		}
+		Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		channel = FileChannel.open(file, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+		out = new SaveWriter(channel);
+		commands = 0;
+	}
+
+	void recordMove(int fromX, int fromY, int toX, int toY) {
+		if (failure != null)
+			return;
+		try {
+			out.putByte(MOVE);
+			out.putShort(fromX);
+			out.putShort(fromY);
+			out.putShort(toX);
+			out.putShort(toY);
+			commit();
+		} catch (IOException e) {
+			failure = e;
+		}
+	}
+
+	void recordCreate(int x, int y, String unitType) {
+		if (failure != null)
+			return;
+		try {
+			out.putByte(CREATE);
+			out.putShort(x);
+			out.putShort(y);
+			out.putShort(Unit.typeIndex(unitType));
+			commit();
+		} catch (IOException e) {
+			failure = e;
+		}
+	}
+
+	void recordFound(int x, int y) {
+		if (failure != null)
+			return;
+		try {
+			out.putByte(FOUND);
+			out.putShort(x);
+			out.putShort(y);
+			commit();
+		} catch (IOException e) {
+			failure = e;
+		}
+	}
+
+	void recordEndTurn() {
+		if (failure != null)
+			return;
+		try {
+			out.putByte(END_TURN);
+			commit();
+		} catch (IOException e) {
+			failure = e;
+		}
+	}
+
+	/**
+	 * Hand the command just recorded to the file system.
+	 */
+	private void commit() throws IOException {
+		out.flush();
+		commands++;
+	}
+
+	/**
+	 * Number of commands recorded since the last snapshot.
+	 *
+	 * @return int of commands
+	 */
+	public int getCommands() {
+		return commands;
+	}
+
+	/**
+	 * Error that stopped the journal. Commands after it are not recorded.
+	 *
+	 * @return the IOException, or null if every command was recorded
+	 */
+	public IOException getFailure() {
+		return failure;
+	}
+
+	/**
+	 * Close the file. Every command recorded is already in it, unless recording
+	 * failed, in which case the file is deleted.
+	 *
+	 * @throws IOException if closing fails
+	 */
+	@Override
+	public void close() throws IOException {
+		if (channel != null)
+			channel.close();
+		channel = null;
+		if (failure != null)
+			Files.deleteIfExists(file);
+	}
+
+	/**
+	 * Replay a journal: load its snapshot and play every recorded command on it,
+	 * starting each player's turn as their first command comes up. The game is left
+	 * as it was after the last command recorded.
+	 *
+	 * @param file     Path of the journal
+	 * @param listener TurnListener told about every turn replayed
+	 * @return CivModel of the game after the last command
+	 * @throws IOException if the file is not a journal, or a command cannot be
+	 *                     played on the game
+	 */
+	public static CivModel replay(Path file, TurnListener listener) throws IOException {
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+			SaveReader in = new SaveReader(channel);
+			if (in.getInt() != MAGIC)
+				throw new IOException("not a journal");
+			int version = in.getShort();
+			if (version != VERSION)
+				throw new IOException("journal version " + version + " is not supported");
+			byte[] snapshot = new byte[in.getCount(Integer.MAX_VALUE)];
+			in.getBytes(snapshot);
+			CivModel model = new CivModel(snapshot);
+			CivController controller = new CivController(model);
+			controller.setTurnListener(listener);
+			controller.setReplaying(true);
+			boolean started = false;
+			while (true) {
+				long at = in.position();
+				int command, x, y, toX = 0, toY = 0, type = 0;
+				try { // read the whole command first, so one cut short changes nothing
+					command = in.getByte();
+					if (command == END_TURN) {
+						x = y = 0;
+					} else {
+						x = in.getShort();
+						y = in.getShort();
+						if (command == MOVE) {
+							toX = in.getShort();
+							toY = in.getShort();
+						} else if (command == CREATE) {
+							type = in.getShort();
+						}
+					}
+				} catch (EOFException e) { // end of the journal
+					return model;
+				}
+				if (!started) {
+					controller.startTurn();
+					started = true;
+				}
+				switch (command) {
+				case MOVE:
+					Tile from = controller.getTileAt(x, y);
+					if (from == null || from.getUnit() == null || controller.getTileAt(toX, toY) == null)
+						throw mismatch("no unit to move", at);
+					controller.moveUnit(from.getUnit(), toX, toY);
+					break;
+				case CREATE:
+					if (type < 0 || type >= Unit.TYPES.length || controller.getTileAt(x, y) == null
+							|| !controller.createUnit(x, y, Unit.TYPES[type]))
+						throw mismatch("cannot create unit", at);
+					break;
+				case FOUND:
+					if (controller.getTileAt(x, y) == null || !controller.foundCity(x, y))
+						throw mismatch("cannot found city", at);
+					break;
+				case END_TURN:
+					controller.endTurn();
+					started = false;
+					break;
+				default:
+					throw new IOException("corrupt journal: command " + command + " at offset " + at);
+				}
+			}
+		}
+	}
+
+	private static IOException mismatch(String problem, long at) {
+		return new IOException("journal does not match the game: " + problem + " at offset " + at);
+	}
+
+}
@@ -0,0 +1,216 @@
+package controllers;
+
+import components.Unit;
+import models.CivBoard;
+import models.Player;
+
+/**
+ * PathFinder.java
+ *
+ * Finds the cheapest route for a unit between two tiles of a board with A* search. Entering
+ * a tile costs 1 minus its movement modifier, so hills and swamps cost 2. Water, mountains
+ * and any tile the unit could never afford to enter are impassable, as are tiles holding an
+ * enemy unit or city unless they are the destination (moving there is an attack). Friendly
+ * units only block the first step, since they will usually have moved on by the time the
+ * unit gets further along.
+ *
+ * All search state lives in primitive arrays and a TileHeap that are reused between queries, so a query
+ * allocates nothing once the buffers have grown to the size of the board. Locations are
+ * passed around packed as y * size + x.
+ *
+ * @field board CivBoard being searched
+ * @field size size of board when the buffers were allocated
+ * @field gScore cheapest known cost from the start to each tile
+ * @field parent tile each tile was reached from on the cheapest known route
+ * @field seen generation in which gScore and parent of each tile were last written
+ * @field closed generation in which each tile was last expanded
+ * @field generation incremented per query so the buffers never need clearing
+ * @field open open tiles keyed by their f score
+ * @field lastCost cost of the route found by the last query, -1 if there was none
+ */
+public class PathFinder {
+
+	private final CivBoard board;
+	private int size;
+	private int[] gScore;
+	private int[] parent;
+	private int[] seen;
+	private int[] closed;
+	private int generation;
+	private TileHeap open;
+	private int lastCost = -1;
+
+	/**
+	 * Create a path finder over the given board.
+	 *
+	 * @param board CivBoard that routes will be found on
+	 */
+	public PathFinder(CivBoard board) {
+		this.board = board;
+	}
+
+	/**
+	 * Find the cheapest route for unit from its current tile to targetX, targetY and write
+	 * the tiles along it, starting with the first step and ending with the target, into
+	 * path. If path is too short only its first path.length steps are written.
+	 *
+	 * @param unit    the Unit that would walk the route
+	 * @param targetX int of x location to route to
+	 * @param targetY int of y location to route to
+	 * @param path    buffer receiving the packed tiles of the route
+	 * @return number of steps in the route, 0 if the unit is already there, or -1 if the
+	 *         target cannot be reached
+	 */
+	public int findPath(Unit unit, int targetX, int targetY, int[] path) {
+		int target = search(unit, targetX, targetY);
+		if (target < 0)
+			return -1;
+		int start = unit.getY() * size + unit.getX();
+		int length = 0;
+		for (int t = target; t != start; t = parent[t])
+			length++;
+		int i = length - 1;
+		for (int t = target; t != start; t = parent[t], i--) {
+			if (i < path.length)
+				path[i] = t;
+		}
+		return length;
+	}
+
+	/**
+	 * Find the first step of the cheapest route for unit to targetX, targetY.
+	 *
+	 * @param unit    the Unit that would walk the route
+	 * @param targetX int of x location to route to
+	 * @param targetY int of y location to route to
+	 * @return packed y * size + x of the first step, or -1 if the target cannot be
+	 *         reached or the unit is already there
+	 */
+	public int nextStep(Unit unit, int targetX, int targetY) {
+		int target = search(unit, targetX, targetY);
+		int start = unit.getY() * size + unit.getX();
+		if (target < 0 || target == start)
+			return -1;
+		int step = target;
+		while (parent[step] != start)
+			step = parent[step];
+		return step;
+	}
+
+	/**
+	 * Total movement cost of the route found by the last query.
+	 *
+	 * @return cost of the last route, or -1 if the last query found none
+	 */
+	public int getLastCost() {
+		return lastCost;
+	}
+
+	/**
+	 * Run A* from the unit's tile to the target.
+	 *
+	 * @return packed target tile if it was reached, -1 otherwise
+	 */
+	private int search(Unit unit, int targetX, int targetY) {
+		prepare();
+		lastCost = -1;
+		if (targetX < 0 || targetX >= size || targetY < 0 || targetY >= size)
+			return -1;
+		int sx = unit.getX(), sy = unit.getY();
+		int start = sy * size + sx;
+		int target = targetY * size + targetX;
+		Player mover = unit.getOwner();
+		int maxMovement = unit.getMaxMovement();
+		gScore[start] = 0;
+		parent[start] = start;
+		seen[start] = generation;
+		open.push(heuristic(sx, sy, targetX, targetY), start);
+		while (!open.isEmpty()) {
+			int cur = open.pop();
+			if (closed[cur] == generation)
+				continue;
+			closed[cur] = generation;
+			if (cur == target) {
+				lastCost = gScore[cur];
+				return cur;
+			}
+			int cx = cur % size, cy = cur / size;
+			for (int dx = -1; dx <= 1; dx++) {
+				for (int dy = -1; dy <= 1; dy++) {
+					int nx = cx + dx, ny = cy + dy;
+					if ((dx == 0 && dy == 0) || nx < 0 || ny < 0 || nx >= size || ny >= size)
+						continue;
+					int next = ny * size + nx;
+					if (closed[next] == generation)
+						continue;
+					int cost = stepCost(next, mover, maxMovement, next == target, cur == start);
+					if (cost < 0)
+						continue;
+					int g = gScore[cur] + cost;
+					if (seen[next] != generation || g < gScore[next]) {
+						seen[next] = generation;
+						gScore[next] = g;
+						parent[next] = cur;
+						open.push(g + heuristic(nx, ny, targetX, targetY), next);
+					}
+				}
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * Cost for mover to enter the tile at index, or -1 if it cannot.
+	 *
+	 * @param index       packed tile being entered
+	 * @param mover       owner of the moving unit
+	 * @param maxMovement most movement the unit ever has in one turn
+	 * @param isGoal      true if the tile is the destination of the route
+	 * @param firstStep   true if the tile is entered straight from the start
+	 * @return movement cost of entering the tile, -1 if impassable
+	 */
+	private int stepCost(int index, Player mover, int maxMovement, boolean isGoal, boolean firstStep) {
+		int cost = 1 - board.getMovementModifier(index);
+		if (cost > maxMovement)
+			return -1;
+		Unit occupant = board.getUnit(index);
+		if (occupant != null) {
+			if (occupant.getOwner() != mover) {
+				if (!isGoal)
+					return -1;
+			} else if (firstStep) {
+				return -1;
+			}
+		}
+		if (!isGoal && board.isCityTile(index) && board.getOwnerCity(index).getOwner() != mover)
+			return -1;
+		return cost;
+	}
+
+	/**
+	 * Lower bound of the cost between two tiles: every step costs at least 1 and
+	 * diagonal steps are allowed.
+	 */
+	private static int heuristic(int x, int y, int targetX, int targetY) {
+		return Math.max(Math.abs(targetX - x), Math.abs(targetY - y));
+	}
+
+	/**
+	 * Size the buffers for the board and start a new generation.
+	 */
+	private void prepare() {
+		if (gScore == null || size != board.getSize()) {
+			size = board.getSize();
+			int tiles = size * size;
+			gScore = new int[tiles];
+			parent = new int[tiles];
+			seen = new int[tiles];
+			closed = new int[tiles];
+			open = new TileHeap(size * 8);
+			generation = 0;
+		}
+		open.clear();
+		generation++;
+	}
+
+}
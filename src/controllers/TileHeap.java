@@ -0,0 +1,101 @@
+package controllers;
+
+/**
+ * TileHeap.java
+ *
+ * Binary min-heap of board tiles keyed by an int priority, used as the open set of the
+ * path finding searches. Each entry is packed into a long as (priority << 32 | tile), so
+ * the heap is a single primitive array that is reused between searches, and ties are
+ * broken by the lowest tile index.
+ *
+ * @field heap packed entries, heap ordered
+ * @field size number of entries in heap
+ */
+class TileHeap {
+
+	private long[] heap;
+	private int size;
+
+	/**
+	 * Create an empty heap.
+	 *
+	 * @param capacity number of entries to make room for up front
+	 */
+	TileHeap(int capacity) {
+		heap = new long[Math.max(capacity, 16)];
+	}
+
+	/**
+	 * Remove every entry, keeping the allocated room.
+	 */
+	void clear() {
+		size = 0;
+	}
+
+	/**
+	 * Whether the heap has no entries left.
+	 *
+	 * @return true if empty
+	 */
+	boolean isEmpty() {
+		return size == 0;
+	}
+
+	/**
+	 * Add a tile to the heap.
+	 *
+	 * @param priority non-negative priority, lowest comes out first
+	 * @param tile     packed tile
+	 */
+	void push(int priority, int tile) {
+		if (size == heap.length) {
+			long[] grown = new long[heap.length * 2];
+			System.arraycopy(heap, 0, grown, 0, size);
+			heap = grown;
+		}
+		long entry = ((long) priority << 32) | tile;
+		int i = size++;
+		while (i > 0) {
+			int up = (i - 1) >>> 1;
+			if (heap[up] <= entry)
+				break;
+			heap[i] = heap[up];
+			i = up;
+		}
+		heap[i] = entry;
+	}
+
+	/**
+	 * Priority of the entry that pop() would return next.
+	 *
+	 * @return the lowest priority in the heap
+	 */
+	int peekPriority() {
+		return (int) (heap[0] >>> 32);
+	}
+
+	/**
+	 * Remove the tile with the lowest priority, lowest tile index first on ties.
+	 *
+	 * @return packed tile
+	 */
+	int pop() {
+		long top = heap[0];
+		long last = heap[--size];
+		int i = 0;
+		while (true) {
+			int child = 2 * i + 1;
+			if (child >= size)
+				break;
+			if (child + 1 < size && heap[child + 1] < heap[child])
+				child++;
+			if (heap[child] >= last)
+				break;
+			heap[i] = heap[child];
+			i = child;
+		}
+		heap[i] = last;
+		return (int) top;
+	}
+
+}
@@ -0,0 +1,32 @@
+package controllers;
+
+import models.Player;
+
+/**
+ * TurnListener.java
+ *
+ * Told by CivController when each player's turn starts and ends, so that turns can be
+ * timed and game statistics collected without a view. Both methods are called on the
+ * thread playing the game, and do nothing unless overridden.
+ */
+public interface TurnListener {
+
+	/**
+	 * Called before any of the player's housekeeping is done for the turn.
+	 *
+	 * @param player Player whose turn is starting
+	 * @param round  int of the round the turn belongs to
+	 */
+	default void turnStarted(Player player, int round) {
+	}
+
+	/**
+	 * Called once the player has ended their turn, before the next player starts.
+	 *
+	 * @param player Player whose turn just ended
+	 * @param round  int of the round the turn belonged to
+	 */
+	default void turnEnded(Player player, int round) {
+	}
+
+}
@@ -0,0 +1,119 @@
+package models;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Autosave.java
+ *
+ * Saves a game to a file in the background while it is played. save() takes a snapshot
+ * of the model on the caller's thread, which only copies the game state into memory,
+ * and leaves writing it to disk to a background thread. The thread playing the game
+ * and the JavaFX thread therefore never wait for the disk.
+ *
+ * Each snapshot is written to a temporary file next to the autosave and then moved over
+ * it, so the autosave on disk is always a complete save. If snapshots come faster than
+ * they can be written, only the newest one waiting is written.
+ *
+ * @field file Path the game is saved to
+ * @field writer single background thread writing snapshots
+ * @field pending newest snapshot not yet written, null if there is none
+ * @field saves number of snapshots written to the file so far
+ * @field failure last error writing a snapshot, null if the last write worked
+ */
+public class Autosave implements AutoCloseable {
+
+	private final Path file;
+	private final ExecutorService writer;
+	private final AtomicReference<byte[]> pending = new AtomicReference<byte[]>();
+	private volatile int saves;
+	private volatile IOException failure;
+
+	/**
+	 * Create an autosave writing to the given file.
+	 *
+	 * @param file Path to save the game to, replaced by every save
+	 */
+	public Autosave(Path file) {
+		this.file = file.toAbsolutePath();
+		this.writer = Executors.newSingleThreadExecutor(r -> {
+			Thread t = new Thread(r, "autosave");
+			t.setDaemon(true);
+			return t;
+		});
+	}
+
+	/**
+	 * Snapshot the game and have it written to the file in the background. Must be
+	 * called from the thread playing the game, while no turn is half done.
+	 *
+	 * @param model CivModel to save, not changed
+	 */
+	public void save(CivModel model) {
+		byte[] snapshot = model.snapshot(System.currentTimeMillis());
+		if (pending.getAndSet(snapshot) == null) // otherwise the queued write takes it
+			writer.execute(this::writePending);
+	}
+
+	/**
+	 * Write the newest snapshot, on the background thread.
+	 */
+	private void writePending() {
+		byte[] snapshot = pending.getAndSet(null);
+		if (snapshot == null)
+			return;
+		Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+		try {
+			try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE,
+					StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+				ByteBuffer buffer = ByteBuffer.wrap(snapshot);
+				while (buffer.hasRemaining())
+					channel.write(buffer);
+			}
+			SaveFormat.replace(temp, file);
+			saves++;
+			failure = null;
+		} catch (IOException e) {
+			failure = e;
+		}
+	}
+
+	/**
+	 * Number of snapshots written to the file so far.
+	 *
+	 * @return int of completed saves
+	 */
+	public int getSaves() {
+		return saves;
+	}
+
+	/**
+	 * Error from the last attempt to write a snapshot.
+	 *
+	 * @return the IOException, or null if the last write worked
+	 */
+	public IOException getFailure() {
+		return failure;
+	}
+
+	/**
+	 * Finish writing any snapshot still waiting and stop the background thread.
+	 */
+	@Override
+	public void close() {
+		writer.shutdown();
+		try {
+			writer.awaitTermination(10, TimeUnit.SECONDS);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+}
@@ -0,0 +1,150 @@
+package models;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+import components.City;
+
+/**
+ * CityIndex.java
+ *
+ * Spatial index of the cities standing on a board, kept up to date as cities are founded
+ * and destroyed. Cities are bucketed into square cells of CELL x CELL tiles so that the
+ * closest enemy city to a unit can be found by searching outwards ring by ring instead of
+ * scanning every tile of the board. Distances are Chebyshev distances (a diagonal step
+ * counts as one), matching how units move.
+ *
+ * @field size int specifying the size of the indexed board
+ * @field cellsPerSide number of cells along each side of the board
+ * @field cells cities bucketed by the cell containing them, null for empty cells
+ * @field byOwner cities of each player
+ * @field count total number of cities in the index
+ */
+public class CityIndex {
+
+	private static final int CELL = 8;
+
+	private final int size;
+	private final int cellsPerSide;
+	private final ArrayList<City>[] cells;
+	private final Map<Player, ArrayList<City>> byOwner = new IdentityHashMap<Player, ArrayList<City>>();
+	private int count;
+
+	/**
+	 * Create an empty index for a size x size board.
+	 *
+	 * @param size size of the board; board is size x size
+	 */
+	@SuppressWarnings({ "unchecked", "rawtypes" })
+	public CityIndex(int size) {
+		this.size = size;
+		this.cellsPerSide = (size + CELL - 1) / CELL;
+		this.cells = new ArrayList[cellsPerSide * cellsPerSide];
+	}
+
+	/**
+	 * Add a newly founded city to the index. A city already in the index is not added
+	 * again.
+	 *
+	 * @param city the City that now stands on the board
+	 */
+	public void add(City city) {
+		int cell = cellOf(city.getX(), city.getY());
+		if (cells[cell] == null)
+			cells[cell] = new ArrayList<City>(2);
+		else if (cells[cell].contains(city))
+			return;
+		cells[cell].add(city);
+		ArrayList<City> owned = byOwner.get(city.getOwner());
+		if (owned == null) {
+			owned = new ArrayList<City>();
+			byOwner.put(city.getOwner(), owned);
+		}
+		owned.add(city);
+		count++;
+	}
+
+	/**
+	 * Remove a destroyed city from the index.
+	 *
+	 * @param city the City that no longer stands on the board
+	 */
+	public void remove(City city) {
+		ArrayList<City> bucket = cells[cellOf(city.getX(), city.getY())];
+		if (bucket == null || !bucket.remove(city))
+			return;
+		byOwner.get(city.getOwner()).remove(city);
+		count--;
+	}
+
+	/**
+	 * Number of cities a player currently has on the board.
+	 *
+	 * @param player Player in question
+	 * @return number of cities in the index owned by player
+	 */
+	public int citiesOf(Player player) {
+		ArrayList<City> owned = byOwner.get(player);
+		return owned == null ? 0 : owned.size();
+	}
+
+	/**
+	 * Find the city not owned by player that is closest to x,y. Ties are broken by the
+	 * smallest x, then the smallest y, the same order a column by column scan of the
+	 * board would find them in.
+	 *
+	 * @param player Player looking for a target
+	 * @param x int specifying x location to search from
+	 * @param y int specifying y location to search from
+	 * @return closest enemy City, or null if every city belongs to player
+	 */
+	public City nearestEnemyCity(Player player, int x, int y) {
+		if (count - citiesOf(player) == 0)
+			return null;
+		int cx = Math.min(Math.max(x, 0), size - 1) / CELL;
+		int cy = Math.min(Math.max(y, 0), size - 1) / CELL;
+		City best = null;
+		int bestDist = Integer.MAX_VALUE;
+		for (int ring = 0; ring < cellsPerSide; ring++) {
+			// every tile in this ring is at least this far away
+			if (ring > 0 && (ring - 1) * CELL + 1 > bestDist)
+				break;
+			for (int i = cx - ring; i <= cx + ring; i++) {
+				for (int j = cy - ring; j <= cy + ring; j++) {
+					// only visit the cells on the border of the ring
+					if (i != cx - ring && i != cx + ring && j != cy - ring && j != cy + ring)
+						continue;
+					if (i < 0 || j < 0 || i >= cellsPerSide || j >= cellsPerSide)
+						continue;
+					ArrayList<City> bucket = cells[j * cellsPerSide + i];
+					if (bucket == null)
+						continue;
+					for (City c : bucket) {
+						if (c.getOwner() == player)
+							continue;
+						int dist = Math.max(Math.abs(c.getX() - x), Math.abs(c.getY() - y));
+						if (dist < bestDist || (dist == bestDist && (c.getX() < best.getX()
+								|| (c.getX() == best.getX() && c.getY() < best.getY())))) {
+							best = c;
+							bestDist = dist;
+						}
+					}
+				}
+			}
+		}
+		return best;
+	}
+
+	/**
+	 * Cell of the index containing the tile x,y.
+	 *
+	 * @param x int specifying x location on the board
+	 * @param y int specifying y location on the board
+	 * @return index into cells
+	 */
+	private int cellOf(int x, int y) {
+		return (y / CELL) * cellsPerSide + (x / CELL);
+	}
+
+}
@@ -1,27 +1,54 @@
 package models;
 
-import java.io.File;
-import java.io.FileNotFoundException;
 import java.io.IOException;
-import java.io.ObjectInputStream;
-import java.io.ObjectOutputStream;
 import java.io.Serializable;
+import java.nio.MappedByteBuffer;
+import java.nio.file.Paths;
 import java.util.ArrayList;
-import java.util.Random;
-import java.util.Scanner;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.stream.IntStream;
 
+import components.City;
 import components.Tile;
+import components.Unit;
 
 /**
  * CivBoard.java
  * 
  * Holds the collection of individual tiles that make up a single Civ map. Is serialized to support
- * saving and loading games. Constructs boards based on map seleciton, or in the case of map 4, 
- * randomizes it while avoiding softlocks.
+ * saving and loading games. Constructs boards based on map seleciton, or in the case of maps 4
+ * and 5, randomizes it while avoiding softlocks.
+ *
+ * Tile state is stored as a struct of arrays: every layer is a flat array indexed by
+ * 	y * size + x, and the Tile objects handed out by getTile() are lightweight views over
+ * 	one index of those arrays.
  *
- * @field tiles 2D array containing our tile objects
  * @field size int specifying the size of our board --> board is size x size
  *        tiles
+ * @field terrain byte per tile holding the ordinal of its Tile.terrainTypes
+ * @field resource byte per tile holding an index into RESOURCES
+ * @field flags byte per tile holding the CITY and SETTLED bits
+ * @field owner int per tile holding (index + 1) into cities of the owning city, 0 if unowned
+ * @field occupant the Unit stationed on each tile, null if empty
+ * @field unitCount number of non null entries in occupant
+ * @field fog FogOfWar tracking which tiles each player has revealed
+ * @field cities every City that has ever owned a tile on this board, referenced by owner
+ * @field cityIndex spatial index of the cities currently standing on this board, rebuilt
+ * 		from the tile layers when first needed after loading
+ * @field sharedTerrain whether terrain and resource are the layers of a MapTemplate,
+ * 		shared with other boards, and so must be copied before they are written
+ * @field packedTerrain TERR section of the save a large board was loaded from, mapped
+ * 		into memory, while some of its pages are still to be unpacked; null otherwise
+ * @field pagedIn bit per page of PAGE_TILES tiles, set once the page has been unpacked
+ * @field pagesLeft number of pages still to be unpacked
+ * @field runStarts first tile of each run of the owner layer still to be unpacked
+ * @field runIds owner of each of those runs
+ * @field changedTiles bit per tile whose unit, city or owner changed since the model last
+ * 		told its observers, see takeChangedTiles()
  * @field playerStartingCoords ArrayList of int[2] specifying the starting coordinates
  * 		(x,y) of each player for each map, wherein the first two elements give the starting coordinates
  * 		2 players for a 2 player game, the third gives the starting coordinate of player three
@@ -32,8 +59,66 @@ import components.Tile;
  */
 public class CivBoard implements Serializable {
 
-	public Tile[][] tiles;
+	/** resource names by their index in the resource layer, "" meaning no resource */
+	public static final String[] RESOURCES = { "", "wheat", "horse", "iron" };
+
+	private static final byte NONE = 0;
+	private static final byte WHEAT = 1;
+	private static final byte HORSE = 2;
+	private static final byte IRON = 3;
+
+	/** Map4 boards with at least this many rows are generated in parallel bands */
+	private static final int BAND_THRESHOLD = 512;
+	private static final int BAND_ROWS = 64;
+
+	private static final int PAGE_SHIFT = 12;
+	private static final int PAGE_TILES = 1 << PAGE_SHIFT;
+	/** boards with at least this many tiles are paged in from a save as they are used */
+	private static final int MAP_THRESHOLD = 1 << 18;
+
+	private static final byte CITY = 1; // tile currently holds a city
+	private static final byte SETTLED = 2; // tile has held a city at some point, keeps city modifiers
+
+	private static final Tile.terrainTypes[] TERRAIN_TYPES = Tile.terrainTypes.values();
+	private static final int[] MOVEMENT_BONUS = new int[TERRAIN_TYPES.length];
+	private static final double[] ATTACK_MULT = new double[TERRAIN_TYPES.length];
+	static {
+		for (Tile.terrainTypes type : TERRAIN_TYPES) {
+			if (type.equals(Tile.terrainTypes.HILL)) {
+				MOVEMENT_BONUS[type.ordinal()] = -1;
+				ATTACK_MULT[type.ordinal()] = 1.25;
+			} else if (type.equals(Tile.terrainTypes.SWAMP)) {
+				MOVEMENT_BONUS[type.ordinal()] = -1;
+				ATTACK_MULT[type.ordinal()] = .75;
+			} else if (type.equals(Tile.terrainTypes.FIELD)) {
+				MOVEMENT_BONUS[type.ordinal()] = 0;
+				ATTACK_MULT[type.ordinal()] = 1;
+			} else {
+				// terrain type is either a mountain or water, either way it is impassable.
+				MOVEMENT_BONUS[type.ordinal()] = -1000;
+				ATTACK_MULT[type.ordinal()] = 0;
+			}
+		}
+	}
+
 	public int size;
+	private byte[] terrain;
+	private byte[] resource;
+	private byte[] flags;
+	private int[] owner;
+	private Unit[] occupant;
+	private int unitCount;
+	private FogOfWar fog;
+	private ArrayList<City> cities;
+	private transient IdentityHashMap<City, Integer> cityIds;
+	private transient CityIndex cityIndex;
+	private transient boolean sharedTerrain;
+	private transient MappedByteBuffer packedTerrain;
+	private transient long[] pagedIn;
+	private transient int pagesLeft;
+	private transient int[] runStarts;
+	private transient int[] runIds;
+	private transient BitSet changedTiles;
 	private ArrayList<int[]> playerStartingCoords;
 
 	/**
@@ -47,84 +132,354 @@ public class CivBoard implements Serializable {
 	 * 
 	 */
 	public CivBoard(int size) {
-		this.size = size;
-		Tile[][] board = new Tile[size][size];
+		this(size, new SplittableRandom().nextLong());
+	}
+
+	/**
+	 * Constructor for a Map4 board whose random areas are drawn from the given seed, so
+	 * 	the same size and seed always give the same board.
+	 *
+	 * Boards of at least BAND_THRESHOLD rows are generated in bands of BAND_ROWS rows
+	 * 	in parallel on the common fork-join pool. Each band draws from its own random
+	 * 	sequence, seeded from the board's seed and the band's number, so the board only
+	 * 	depends on size and seed and never on how many threads generated it. Smaller
+	 * 	boards are drawn from one sequence, as they always have been.
+	 *
+	 * @param size size provides a size for the board; given size board is size x size
+	 * @param seed long seeding the random generation
+	 */
+	public CivBoard(int size, long seed) {
+		allocate(size);
+		if (size < BAND_THRESHOLD) {
+			generateRows(new SplittableRandom(seed), 0, size - 1);
+		} else {
+			int bands = (size - 1 + BAND_ROWS - 1) / BAND_ROWS;
+			IntStream.range(0, bands).parallel().forEach(band -> generateRows(
+					new SplittableRandom(bandSeed(seed, band)), band * BAND_ROWS,
+					Math.min((band + 1) * BAND_ROWS, size - 1)));
+		}
 		int i = 0;
-		int j;
-		Random rng = new Random();
+		while (i < size) { // set border to water
+			setTile(0, i, Tile.terrainTypes.WATER, "");
+			setTile(i, 0, Tile.terrainTypes.WATER, "");
+			setTile(i, size - 1, Tile.terrainTypes.WATER, "");
+			setTile(size - 1, i, Tile.terrainTypes.WATER, "");
+			i++;
+		}
+		setTile(size-2, size-2, Tile.terrainTypes.FIELD, ""); // guarantee players dont start on water blocks
+		setTile(1, 1, Tile.terrainTypes.FIELD, "");
+		setTile(1, size-2, Tile.terrainTypes.FIELD, "");
+		setTile(size-2, 1, Tile.terrainTypes.FIELD, "");
+	}
+
+	/**
+	 * Constructor for a Map5 board, whose terrain is drawn from value noise seeded by
+	 * 	the given seed, see NoiseTerrain. Every start is a field, and any start walled
+	 * 	off from the others by water or mountains is joined to them by turning the
+	 * 	fewest tiles in the way into swamp or hills, so no player is ever stuck.
+	 *
+	 * @param size size provides a size for the board; given size board is size x size
+	 * @param seed long seeding the noise
+	 * @param starts List of int[2] giving the (x,y) of each player's starting tile
+	 */
+	public CivBoard(int size, long seed, List<int[]> starts) {
+		allocate(size);
+		NoiseTerrain.generate(terrain, resource, size, seed);
+		for (int[] start : starts)
+			setTile(start[0], start[1], Tile.terrainTypes.FIELD, ""); // guarantee players dont start on water blocks
+		NoiseTerrain.connect(terrain, size, starts);
+	}
+
+	/**
+	 * Generate rows from (inclusive) to to (exclusive) of a Map4 board, leaving out the
+	 * 	last column. Only writes the tiles of those rows, so bands of rows can be
+	 * 	generated at the same time.
+	 *
+	 * @param rng SplittableRandom the rows are drawn from, in order
+	 * @param from int of the first row to generate
+	 * @param to int of the row after the last one to generate
+	 */
+	private void generateRows(SplittableRandom rng, int from, int to) {
 		int oneThird = size/3;
 		int twoThird = size * 2/3;
-		while (i < size - 1) {
-			j = 0;
-			while (j < size - 1) {
+		for (int i = from; i < to; i++) {
+			for (int j = 0; j < size - 1; j++) {
 				boolean isTopCorner = ((i < (oneThird) && j < (oneThird)));
 				boolean isBottomCorner = (i > twoThird) && (j > twoThird); 
 				int coordSum = i + j;
 				boolean isMiddleStrip = (coordSum < (size + oneThird)) && (coordSum > (size - oneThird));
 				int type = rng.nextInt(10);
 				boolean resource = (type == 4 && (i % 2 == 1) && (j % 2 == 1));
+				Tile.terrainTypes terrainType;
+				byte resourceType = NONE;
 				if (type > 2  && (isTopCorner || isBottomCorner)){// top left and bot. right
-					if (resource) 
-						board[i][j] = new Tile(Tile.terrainTypes.SWAMP,"horse"); // corners are swamp or water
-					else if (type < 8)
-						board[i][j] = new Tile(Tile.terrainTypes.SWAMP,"");
+					if (resource) {
+						terrainType = Tile.terrainTypes.SWAMP; // corners are swamp or water
+						resourceType = HORSE;
+					} else if (type < 8)
+						terrainType = Tile.terrainTypes.SWAMP;
 					else
-						board[i][j] = new Tile(Tile.terrainTypes.FIELD,"");
+						terrainType = Tile.terrainTypes.FIELD;
 				}
 				else if (type <= 2  && (isTopCorner || isBottomCorner)) { 
-					board[i][j] = new Tile(Tile.terrainTypes.WATER, "");
+					terrainType = Tile.terrainTypes.WATER;
 				}
 				else if (type > 3 && isMiddleStrip) { // diagonal strip down the middle is mostly hills
-					if (resource)
-						board[i][j] = new Tile(Tile.terrainTypes.HILL, "iron");
-					else if (type < 9)
-						board[i][j] = new Tile(Tile.terrainTypes.HILL, "");
+					if (resource) {
+						terrainType = Tile.terrainTypes.HILL;
+						resourceType = IRON;
+					} else if (type < 9)
+						terrainType = Tile.terrainTypes.HILL;
 					else
-						board[i][j] = new Tile(Tile.terrainTypes.MOUNTAIN, "");
+						terrainType = Tile.terrainTypes.MOUNTAIN;
 				}
 				else { // rest are fields. 
-					if (resource)
-						board[i][j] = new Tile(Tile.terrainTypes.FIELD, "wheat");
-					else
-						board[i][j] = new Tile(Tile.terrainTypes.FIELD, "");
+					terrainType = Tile.terrainTypes.FIELD;
+					if (resource) 
+						resourceType = WHEAT;
 				}
-				j++;
+				this.terrain[i * size + j] = (byte) terrainType.ordinal();
+				this.resource[i * size + j] = resourceType;
 			}
-			i++;
 		}
-		i = 0;
-		j = 0;
-		while (i < size) { // set border to water
-			board[i][0] = new Tile(Tile.terrainTypes.WATER, "");
-			board[0][i] = new Tile(Tile.terrainTypes.WATER, "");
-			board[size - 1][i] = new Tile(Tile.terrainTypes.WATER, "");
-			board[i][size - 1] = new Tile(Tile.terrainTypes.WATER, "");
-			i++;
+	}
+
+	/**
+	 * Seed of one band of a Map4 board generated in bands, mixed from the board's seed
+	 * 	so that neighbouring bands draw unrelated sequences.
+	 *
+	 * @param seed long seeding the board
+	 * @param band int of the band, counting from the top
+	 * @return long to seed the band's SplittableRandom with
+	 */
+	private static long bandSeed(long seed, int band) {
+		long h = (seed ^ band) * 0x9E3779B97F4A7C15L;
+		h = (h ^ (h >>> 32)) * 0xBF58476D1CE4E5B9L;
+		return h ^ (h >>> 31);
+	}
+
+	/**
+	 * Constructor for a blank board where every tile has the same terrain and no resource.
+	 * 	Used to back Tiles that are created on their own rather than as part of a map.
+	 *
+	 * @param size size provides a size for the board; given size board is size x size
+	 * @param fill terrain type given to every tile
+	 */
+	public CivBoard(int size, Tile.terrainTypes fill) {
+		allocate(size);
+		for (int i = 0; i < size * size; i++)
+			this.terrain[i] = (byte) fill.ordinal();
+	}
+
+	/**
+	 * Constructor for a board read back from a binary save, positioned at its TERR
+	 * 	section. Reads the TERR and OWNR sections; the cities the owner layer refers
+	 * 	to, the units and the fog are read by the model and handed over afterwards.
+	 *
+	 * Large boards saved uncompressed to a file are not read up front. Their TERR
+	 * 	section is mapped into memory and the owner layer is kept as its runs, and
+	 * 	each page of PAGE_TILES tiles is unpacked the first time one of its tiles is
+	 * 	used. Resuming a huge game then costs about as much as the tiles the game
+	 * 	touches. A damaged tile in such a save is only noticed when its page is
+	 * 	unpacked.
+	 *
+	 * @param in SaveReader positioned at the TERR section
+	 * @param size size of the saved board
+	 * @throws IOException if the sections are missing, cut short or hold values no board can
+	 */
+	CivBoard(SaveReader in, int size) throws IOException {
+		allocate(size);
+		SaveFormat.expect(in, SaveFormat.TERRAIN);
+		MappedByteBuffer mapped = owner.length >= MAP_THRESHOLD ? in.map(owner.length) : null;
+		if (mapped == null) {
+			byte[] packed = terrain; // unpacked in place, terrain is written last
+			in.getBytes(packed);
+			unpack(packed, 0, 0, packed.length);
+		}
+		SaveFormat.expect(in, SaveFormat.OWNERS);
+		int encoding = in.getByte();
+		if (encoding == SaveFormat.RAW) {
+			in.getInts(owner);
+		} else if (encoding == SaveFormat.RUNS) {
+			int runs = in.getCount(owner.length);
+			int[] starts = new int[runs];
+			int[] ids = new int[runs];
+			int at = 0;
+			for (int r = 0; r < runs; r++) {
+				int length = in.getInt();
+				int id = in.getInt();
+				if (length < 1 || length > owner.length - at)
+					throw new IOException("corrupt save: owner run of " + length + " at tile " + at);
+				starts[r] = at;
+				ids[r] = id;
+				if (mapped == null)
+					Arrays.fill(owner, at, at + length, id);
+				at += length;
+			}
+			if (at != owner.length)
+				throw new IOException("corrupt save: owner runs cover " + at + " of " + owner.length + " tiles");
+			if (mapped != null) {
+				runStarts = starts;
+				runIds = ids;
+			}
+		} else {
+			throw new IOException("corrupt save: owner encoding " + encoding);
+		}
+		if (mapped != null) {
+			int pages = (owner.length + PAGE_TILES - 1) >>> PAGE_SHIFT;
+			pagedIn = new long[(pages + 63) >>> 6];
+			pagesLeft = pages;
+			packedTerrain = mapped;
 		}
-		board[size-2][size-2] = new Tile(Tile.terrainTypes.FIELD, ""); // guarantee players dont start on water blocks
-		board[1][1] = new Tile(Tile.terrainTypes.FIELD, "");
-		board[size-2][1] = new Tile(Tile.terrainTypes.FIELD, "");
-		board[1][size-2] = new Tile(Tile.terrainTypes.FIELD, "");
-		this.tiles = board;
 	}
+
 	/**
-	 * Second constructor that will build itself out of a save file
-	 * @param ois ois is an ObjectInputStream for deserializing an instance of the board class
-	 * @throws ClassNotFoundException if class cannot be found
-	 * @throws IOException if unsuccessful read from ois
+	 * Unpack count tiles of a TERR section, starting at tile, from packed[from] on.
+	 * 	packed may be the terrain layer itself, as terrain is written last.
+	 *
+	 * @throws IOException if a tile holds a value no board can
 	 */
-	public CivBoard(ObjectInputStream ois) throws ClassNotFoundException, IOException {
-		unserializeBoard(ois);
+	private void unpack(byte[] packed, int from, int tile, int count) throws IOException {
+		for (int i = 0; i < count; i++) {
+			int t = packed[from + i] & 0xFF;
+			int type = t & 7;
+			if (type >= TERRAIN_TYPES.length || t >= 0x80)
+				throw new IOException("corrupt save: bad tile " + (tile + i));
+			resource[tile + i] = (byte) ((t >>> 3) & 3);
+			flags[tile + i] = (byte) (t >>> 5);
+			terrain[tile + i] = (byte) type;
+		}
 	}
+
+	/**
+	 * Unpack the page holding the tile at the given index if that has not happened
+	 * 	yet. Every use of the tile layers goes through here while packedTerrain is set.
+	 *
+	 * @param index y * size + x of the tile about to be used
+	 */
+	private void pageIn(int index) {
+		int page = index >>> PAGE_SHIFT;
+		if ((pagedIn[page >>> 6] & 1L << page) != 0)
+			return;
+		int start = page << PAGE_SHIFT;
+		int count = Math.min(PAGE_TILES, owner.length - start);
+		byte[] packed = new byte[count];
+		packedTerrain.get(start, packed);
+		try {
+			unpack(packed, 0, start, count);
+		} catch (IOException e) {
+			throw new IllegalStateException(e.getMessage(), e);
+		}
+		if (runStarts != null) {
+			int r = Arrays.binarySearch(runStarts, start);
+			if (r < 0)
+				r = -r - 2; // the run the page starts inside of
+			for (int i = start; i < start + count; r++) {
+				int end = r + 1 < runStarts.length ? Math.min(runStarts[r + 1], start + count) : start + count;
+				Arrays.fill(owner, i, end, runIds[r]);
+				i = end;
+			}
+		}
+		pagedIn[page >>> 6] |= 1L << page;
+		if (--pagesLeft == 0) { // the save is no longer needed
+			packedTerrain = null;
+			pagedIn = null;
+			runStarts = null;
+			runIds = null;
+		}
+	}
+
+	/**
+	 * Unpack every page not unpacked yet, before the layers are used as a whole or the
+	 * 	save the board was loaded from is replaced or deleted. Afterwards the board no
+	 * 	longer refers to the mapped save; see SaveReader.map() for when it is unmapped.
+	 */
+	public void pageInAll() {
+		for (int i = 0; packedTerrain != null; i += PAGE_TILES)
+			pageIn(i);
+	}
+
+	/**
+	 * Write the TERR and OWNR sections of a binary save. Terrain, resource and
+	 * 	flags of a tile fit in one byte together (3, 2 and 2 bits). Most tiles have
+	 * 	no owner and owned ones come in rows, so the owner layer is written as runs
+	 * 	of equal owners unless that would be bigger than writing it as it is.
+	 *
+	 * @param out SaveWriter to write to
+	 * @throws IOException if writing fails
+	 */
+	void writeLayers(SaveWriter out) throws IOException {
+		pageInAll();
+		out.putInt(SaveFormat.TERRAIN);
+		byte[] packed = new byte[terrain.length];
+		for (int i = 0; i < packed.length; i++)
+			packed[i] = (byte) (terrain[i] | resource[i] << 3 | flags[i] << 5);
+		out.putBytes(packed);
+		out.putInt(SaveFormat.OWNERS);
+		int[] runs = new int[64]; // length, owner of each run
+		int count = 0;
+		for (int i = 0; i < owner.length;) {
+			int id = owner[i];
+			int end = i + 1;
+			while (end < owner.length && owner[end] == id)
+				end++;
+			if (2 * count + 2 > runs.length) {
+				if (runs.length >= owner.length) { // runs would not be smaller
+					out.putByte(SaveFormat.RAW);
+					out.putInts(owner);
+					return;
+				}
+				runs = Arrays.copyOf(runs, runs.length * 2);
+			}
+			runs[2 * count] = end - i;
+			runs[2 * count + 1] = id;
+			count++;
+			i = end;
+		}
+		out.putByte(SaveFormat.RUNS);
+		out.putInt(count);
+		out.putInts(count * 2 == runs.length ? runs : Arrays.copyOf(runs, count * 2));
+	}
+
+	/**
+	 * Every City that has owned a tile of this board, in the order the owner layer
+	 * 	refers to them.
+	 *
+	 * @return the board's list of cities, not a copy
+	 */
+	ArrayList<City> getCityRegistry() {
+		return cities;
+	}
+
+	/**
+	 * Hand a board read from a save the cities its owner layer refers to, along with
+	 * 	its fog.
+	 *
+	 * @param cities the cities, in the order they were saved
+	 * @param fog FogOfWar read from the save
+	 * @throws IOException if the owner layer refers to a city that is not there
+	 */
+	void restore(ArrayList<City> cities, FogOfWar fog) throws IOException {
+		int[] ids = runIds != null ? runIds : owner; // runs not yet unpacked hold every owner
+		for (int i = 0; i < ids.length; i++) {
+			if (ids[i] < 0 || ids[i] > cities.size())
+				throw new IOException("corrupt save: owner " + i + " is city " + ids[i]);
+		}
+		this.cities = cities;
+		this.fog = fog;
+		this.cityIds = null;
+		this.cityIndex = null;
+	}
+
 	/**
 	 * getTile returns the Tile object at CivBoard's x,y location
 	 * @param x int specifying x location on our board
 	 * @param y int specifying y location on our board
-	 * @return a Tile object that is the tile on our board at x,y
+	 * @return a Tile view of the tile on our board at x,y
 	 */
 	public Tile getTile(int x, int y) {
 		if (x < 0 || x >= size || y < 0 || y >= size) return null;
-		return this.tiles[y][x];
+		return new Tile(this, y * size + x);
 	}
 	/**
 	 * Third constructor for our board that takes a file which contains
@@ -133,63 +488,87 @@ public class CivBoard implements Serializable {
 	 * Takes files of the form
 	 * 	"tile_type resource_type\n"
 	 * 
-	 * 	where each line provides information about one tile and its resource 
+	 * 	where each line provides information about one tile and its resource,
+	 * 	optionally preceded by how many tiles in a row it describes. See MapReader
+	 * 	for the full format.
+	 *
+	 * Each file is parsed once per process: boards built from the same file share its
+	 * 	terrain and resource layers through a MapTemplate until one of them calls setTile().
 	 * 
 	 * @param file file with format specified above.
+	 * @throws IOException if the file cannot be read, or a line of it is malformed,
+	 * 	in which case the message gives the line and column
 	 */
-	public CivBoard(String file) {
-		Scanner sc = null;
-		try {
-			File fileObj = new File(file);
-			sc = new Scanner(fileObj);
-		} catch (Exception e) {
-			e.printStackTrace();
-		}
-		String line = null;
-		if (sc.hasNextLine()) {
-			line = sc.nextLine();
+	public CivBoard(String file) throws IOException {
+		MapTemplate map = MapTemplate.of(Paths.get(file));
+		allocateState(map.size);
+		this.terrain = map.terrain;
+		this.resource = map.resource;
+		this.sharedTerrain = true;
+	}
+
+	/**
+	 * Allocate every tile layer for a size x size board. Tiles start out as unowned,
+	 * 	empty fields without resources.
+	 *
+	 * @param size size provides a size for the board; given size board is size x size
+	 */
+	private void allocate(int size) {
+		this.terrain = new byte[size * size];
+		this.resource = new byte[size * size];
+		allocateState(size);
+	}
+
+	/**
+	 * Allocate the tile layers that change during a game, leaving terrain and resource
+	 * 	to the caller.
+	 *
+	 * @param size size provides a size for the board; given size board is size x size
+	 */
+	private void allocateState(int size) {
+		this.size = size;
+		int tiles = size * size;
+		this.flags = new byte[tiles];
+		this.owner = new int[tiles];
+		this.occupant = new Unit[tiles];
+		this.fog = new FogOfWar(size);
+		this.cities = new ArrayList<City>();
+	}
+
+	/**
+	 * setTile() overwrites the terrain and resource of the tile at x,y. Used while
+	 * 	building a map.
+	 *
+	 * @param x int specifying x location on our board
+	 * @param y int specifying y location on our board
+	 * @param type terrain type of the tile
+	 * @param resourceType resource name from RESOURCES, "" for none
+	 */
+	public void setTile(int x, int y, Tile.terrainTypes type, String resourceType) {
+		int index = y * size + x;
+		if (packedTerrain != null)
+			pageIn(index);
+		if (sharedTerrain) { // copy the template's layers rather than change every board built from it
+			this.terrain = this.terrain.clone();
+			this.resource = this.resource.clone();
+			this.sharedTerrain = false;
 		}
-		this.size = Integer.valueOf(line);
-		Tile[][] board = new Tile[size][size];
-		int i = 0;
-		int j = 0;
-		Tile.terrainTypes type = null;
-		String resource = "";
-		while (sc.hasNextLine()) {
-			line = sc.nextLine();
-			String[] type_res = line.split(" ");
-			if (type_res[0].equals("field"))
-					type = Tile.terrainTypes.FIELD;
-			else if (type_res[0].equals("swamp"))
-				type = Tile.terrainTypes.SWAMP;
-			else if (type_res[0].equals("hill"))
-				type = Tile.terrainTypes.HILL;
-			else if (type_res[0].equals("water"))
-				type = Tile.terrainTypes.WATER;
-			else if (type_res[0].equals("mountain"))
-				type = Tile.terrainTypes.MOUNTAIN;
-			if (type_res[1].equals("w"))
-				resource = "wheat";
-			else if (type_res[1].equals("h"))
-				resource = "horse";
-			else if (type_res[1].equals("i"))
-				resource = "iron";
-			else
-				resource = "";
-			board[j][i] = new Tile(type, resource);
-			j++;
-			if (j == size) {
-				i++;
-				j = 0;
-			}
-			if (i == size) {
-				break;
-				//System.out.println("error with passed size");
-			}
+		this.terrain[index] = (byte) type.ordinal();
+		this.resource[index] = resourceCode(resourceType);
+	}
+
+	/**
+	 * Convert a resource name into its index within RESOURCES
+	 *
+	 * @param resourceType resource name, "" for none
+	 * @return the byte stored in the resource layer for that resource
+	 */
+	private static byte resourceCode(String resourceType) {
+		for (byte i = 0; i < RESOURCES.length; i++) {
+			if (RESOURCES[i].equals(resourceType))
+				return i;
 		}
-		this.tiles = board;
-		
-		
+		throw new IllegalArgumentException("unknown resource type: " + resourceType);
 	}
 
 	/**
@@ -201,27 +580,236 @@ public class CivBoard implements Serializable {
 	}
 
 	/**
-	 * serializeBoard() is called when saving the game state to capture all of the board's
-	 * 	attributes. 
-	 * @param oos AnObjectOutputStream to write this board's fields to.
-	 * @throws IOException If error when writing to output stream
+	 * Terrain type of the tile at the given index
+	 * @param index y * size + x of the tile
+	 * @return terrainTypes of the tile
+	 */
+	public Tile.terrainTypes getTerrainType(int index) {
+		if (packedTerrain != null)
+			pageIn(index);
+		return TERRAIN_TYPES[terrain[index]];
+	}
+
+	/**
+	 * Movement modifier of the tile at the given index. Tiles that have held a city
+	 * 	keep the city modifier even once the city is destroyed.
+	 * @param index y * size + x of the tile
+	 * @return int to be added to unit movement when entering the tile
+	 */
+	public int getMovementModifier(int index) {
+		if (packedTerrain != null)
+			pageIn(index);
+		if ((flags[index] & SETTLED) != 0)
+			return 0;
+		return MOVEMENT_BONUS[terrain[index]];
+	}
+
+	/**
+	 * Attack multiplier of the tile at the given index
+	 * @param index y * size + x of the tile
+	 * @return double to be multiplied with unit attack on the tile
+	 */
+	public double getAttackModifier(int index) {
+		if (packedTerrain != null)
+			pageIn(index);
+		if ((flags[index] & SETTLED) != 0)
+			return 1.25;
+		return ATTACK_MULT[terrain[index]];
+	}
+
+	/**
+	 * Resource name of the tile at the given index
+	 * @param index y * size + x of the tile
+	 * @return String from RESOURCES, "" if the tile has no resource
+	 */
+	public String getResourceType(int index) {
+		if (packedTerrain != null)
+			pageIn(index);
+		return RESOURCES[resource[index]];
+	}
+
+	/**
+	 * Whether the tile at the given index currently holds a city
+	 * @param index y * size + x of the tile
+	 * @return true if a city stands on the tile
+	 */
+	public boolean isCityTile(int index) {
+		if (packedTerrain != null)
+			pageIn(index);
+		return (flags[index] & CITY) != 0;
+	}
+
+	/**
+	 * City whose area of influence contains the tile at the given index
+	 * @param index y * size + x of the tile
+	 * @return owning City, or null if unowned
+	 */
+	public City getOwnerCity(int index) {
+		if (packedTerrain != null)
+			pageIn(index);
+		int id = owner[index];
+		return id == 0 ? null : cities.get(id - 1);
+	}
+
+	/**
+	 * Make the given city the owner of the tile at the given index
+	 * @param index y * size + x of the tile
+	 * @param city the new owner, or null to clear ownership
+	 */
+	public void setOwnerCity(int index, City city) {
+		if (packedTerrain != null)
+			pageIn(index);
+		owner[index] = city == null ? 0 : cityId(city) + 1;
+		changed(index);
+	}
+
+	/**
+	 * Found a city on the tile at the given index if it is not already owned
+	 * @param index y * size + x of the tile
+	 * @param city the newly founded city
+	 * @return true if the city was founded
+	 */
+	public boolean foundCity(int index, City city) {
+		if (packedTerrain != null)
+			pageIn(index);
+		if (owner[index] != 0)
+			return false;
+		// built before the city is registered, or building it would add the city too
+		getCityIndex();
+		setOwnerCity(index, city);
+		flags[index] |= CITY | SETTLED;
+		cityIndex.add(city);
+		return true;
+	}
+
+	/**
+	 * Remove the city standing on the tile at the given index
+	 * @param index y * size + x of the tile
 	 */
-	public void serializeBoard(ObjectOutputStream oos) throws IOException {
-		oos.writeObject(this.tiles);
-		oos.writeObject(this.size);
-		oos.writeObject(this.playerStartingCoords);
+	public void destroyCity(int index) {
+		if (packedTerrain != null)
+			pageIn(index);
+		if (isCityTile(index))
+			getCityIndex().remove(getOwnerCity(index));
+		flags[index] &= ~CITY;
+		owner[index] = 0;
+		changed(index);
 	}
+
+	/**
+	 * Unit stationed on the tile at the given index
+	 * @param index y * size + x of the tile
+	 * @return the Unit, or null if the tile is empty
+	 */
+	public Unit getUnit(int index) {
+		return occupant[index];
+	}
+
 	/**
-	 * unserializeBoard() is called when attempting to load a saved game state
-	 * 	into this board. 
-	 * @param ois an ObjectInputSteam to load CivBoard attributes from
-	 * @throws ClassNotFoundException if class not found
-	 * @throws IOException if error reading from input stream
+	 * Station a unit on the tile at the given index
+	 * @param index y * size + x of the tile
+	 * @param unit the Unit, or null to empty the tile
 	 */
-	public void unserializeBoard(ObjectInputStream ois) throws ClassNotFoundException, IOException {
-		this.tiles = (Tile[][]) ois.readObject();
-		this.size = (int) ois.readObject();
-		this.playerStartingCoords = (ArrayList<int[]>) ois.readObject();
+	public void setUnit(int index, Unit unit) {
+		if (occupant[index] == null && unit != null)
+			unitCount++;
+		else if (occupant[index] != null && unit == null)
+			unitCount--;
+		occupant[index] = unit;
+		changed(index);
+	}
+
+	/**
+	 * Hand over the tiles whose unit, city or owner changed since this was last called,
+	 * and start tracking afresh.
+	 * @return BitSet of the index of every changed tile
+	 */
+	BitSet takeChangedTiles() {
+		BitSet taken = changedTiles == null ? new BitSet() : changedTiles;
+		changedTiles = null;
+		return taken;
+	}
+
+	private void changed(int index) {
+		if (changedTiles == null)
+			changedTiles = new BitSet();
+		changedTiles.set(index);
+	}
+
+	/**
+	 * Number of tiles that have a unit stationed on them
+	 * @return count of occupied tiles
+	 */
+	public int getUnitCount() {
+		return unitCount;
+	}
+
+	/**
+	 * Whether the given player has revealed the tile at the given index
+	 * @param index y * size + x of the tile
+	 * @param player the Player in question
+	 * @return true if the player can see the tile
+	 */
+	public boolean canSeeTile(int index, Player player) {
+		return fog.isRevealed(player, index);
+	}
+
+	/**
+	 * Reveal the tile at the given index to the given player
+	 * @param index y * size + x of the tile
+	 * @param player the Player the tile is revealed to
+	 */
+	public void revealTile(int index, Player player) {
+		fog.reveal(player, index);
+	}
+
+	/**
+	 * getCityIndex() gives access to the spatial index of the cities on this board,
+	 * 	building it from the tile layers if this board was just loaded.
+	 * @return the CityIndex of this board
+	 */
+	public CityIndex getCityIndex() {
+		if (cityIndex == null) {
+			// only the tiles cities were founded on can hold one, so the rest of a
+			// board still being paged in is left alone
+			cityIndex = new CityIndex(size);
+			for (City c : cities) {
+				int i = c.getY() * size + c.getX();
+				if (isCityTile(i) && getOwnerCity(i) == c)
+					cityIndex.add(c);
+			}
+		}
+		return this.cityIndex;
+	}
+
+	/**
+	 * getFog() gives access to the fog of war so that whole areas can be revealed
+	 * 	or queried at once.
+	 * @return the FogOfWar of this board
+	 */
+	public FogOfWar getFog() {
+		return this.fog;
+	}
+
+	/**
+	 * Look up the id a city is stored under in the owner layer, registering the city
+	 * 	if it has not owned a tile on this board before.
+	 * @param city the City to look up
+	 * @return index of the city within cities
+	 */
+	private int cityId(City city) {
+		if (cityIds == null) {
+			cityIds = new IdentityHashMap<City, Integer>();
+			for (int i = 0; i < cities.size(); i++)
+				cityIds.put(cities.get(i), i);
+		}
+		Integer id = cityIds.get(city);
+		if (id == null) {
+			id = cities.size();
+			cities.add(city);
+			cityIds.put(city, id);
+		}
+		return id;
 	}
 
 }
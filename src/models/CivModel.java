@@ -1,15 +1,25 @@
 package models;
 
-import java.io.FileInputStream;
-import java.io.FileOutputStream;
-import java.io.ObjectInputStream;
-import java.io.ObjectOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
 import java.io.Serializable;
+import java.io.UncheckedIOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
 import java.util.ArrayList;
+import java.util.IdentityHashMap;
 import java.util.List;
-import java.util.Observable;
+import java.util.SplittableRandom;
+import java.util.zip.Deflater;
 
+import components.City;
 import components.Tile;
+import components.Unit;
 
 /**
  * CivModel.java
@@ -18,8 +28,18 @@ import components.Tile;
  *
  * @author Connie Sun, Ryan Smith, Tim Gavlick
  */
-@SuppressWarnings("deprecation")
-public class CivModel extends Observable implements Serializable {
+public class CivModel implements Serializable {
+
+	/** file the game is saved to and loaded from */
+	public static final String SAVE_FILE = "save_game.dat";
+	/** file the game is periodically saved to while it is played, see Autosave */
+	public static final String AUTOSAVE_FILE = "autosave.dat";
+	/** file every command of the game is recorded to, see controllers.Journal */
+	public static final String JOURNAL_FILE = "journal.dat";
+	private static final int MAX_SIZE = 1 << 15;
+	private static final int MAX_PLAYERS = 64;
+	private static final int LISTED = 1; // unit is in its owner's list of units
+	private static final int ON_BOARD = 2; // unit stands on the tile at its coordinates
 
 	private CivBoard board;
 	private Node curPlayer;
@@ -28,6 +48,12 @@ public class CivModel extends Observable implements Serializable {
 	private int round;
 	private int numPlayers;
 	private ArrayList<int[]> playerStartingCoords;
+	private long seed;
+	private int map;
+	private boolean compressSaves;
+	private final transient EventBus events = new EventBus();
+	private transient ModelChange pending;
+	private transient int batchDepth;
 
 	/**
 	 * Initialize a new model.
@@ -56,12 +82,39 @@ public class CivModel extends Observable implements Serializable {
 		}
 		String mapStr = initPlayerStartingCoords(map, size);
 		round = 0;
+		seed = new SplittableRandom().nextLong();
+		this.map = map;
 		// System.out.println(mapStr);
-		if (map != 4) {
-			this.board = new CivBoard(mapStr);
-		} else {
-			this.board = new CivBoard(size);
+		this.board = newBoard(mapStr, size);
+		curPlayer = head;
+	}
+
+	/**
+	 * Initialize a new model where every seat is played by the computer, for
+	 * running games without a view.
+	 *
+	 * @param playerCount how many CPU players this game will have (2-4, at most as
+	 *                    many as the map has starting locations)
+	 * @param map         int specifying which map to play on (1-5)
+	 * @param size        int specifying the size of the map (only applicable if map 4 or 5)
+	 * @param seed        long seeding the generation of maps 4 and 5 and every decision
+	 *                    the computer makes, see turnSeed()
+	 */
+	public CivModel(int playerCount, int map, int size, long seed) {
+		head = new Node(new Player(0, "CPU Player 1"));
+		curPlayer = head;
+		for (int i = 1; i < playerCount; i++) {
+			curPlayer.next = new Node(new Player(0, "CPU Player " + (i + 1)));
+			curPlayer = curPlayer.next;
 		}
+		curPlayer.next = head; // have it wrap around
+		numPlayers = playerCount;
+		singlePlayer = false;
+		String mapStr = initPlayerStartingCoords(map, size);
+		round = 0;
+		this.seed = seed;
+		this.map = map;
+		this.board = newBoard(mapStr, size);
 		curPlayer = head;
 	}
 
@@ -69,38 +122,126 @@ public class CivModel extends Observable implements Serializable {
 	 * CivModel is another constructor that will be called if the user wants to load
 	 * a previous game state
 	 * 
-	 * CivModel() unserializes a previously existing game state and sets appropriate
-	 * attributes of all relevant classes.
+	 * CivModel() reads a previously saved game state from save_game.dat and sets
+	 * appropriate attributes of all relevant classes. Saves in the binary format
+	 * described in SaveFormat are read through a FileChannel. Saves written with Java
+	 * serialization before that format existed are not supported.
 	 * 
 	 * @throws NullPointerException if the file save_game.dat does not exist/ can't
 	 *                              be opened
 	 */
 	public CivModel() throws NullPointerException {
-		try {
-			FileInputStream fileStream = new FileInputStream("save_game.dat");
-			ObjectInputStream ois = new ObjectInputStream(fileStream);
-			this.board = new CivBoard(ois);
-			this.head = (Node) ois.readObject();
-			this.singlePlayer = (boolean) ois.readObject();
-			this.round = (int) ois.readObject();
-			this.numPlayers = (int) ois.readObject();
-			this.playerStartingCoords = (ArrayList<int[]>) ois.readObject();
-			this.curPlayer = (Node) ois.readObject();
-			Node endIter = (Node) ois.readObject();
-			curPlayer.next = endIter;
-			int i = 0;
-			while (i < numPlayers - 2) {
-				endIter.next = (Node) ois.readObject();
-				endIter = endIter.next;
-				i++;
-			}
-			endIter.next = curPlayer;
+		this(Paths.get(SAVE_FILE));
+	}
 
+	/**
+	 * Load a game saved to the given file, such as an autosave. See CivModel().
+	 *
+	 * @param file Path of the save to load
+	 * @throws NullPointerException if the file does not exist/ can't be opened
+	 */
+	public CivModel(Path file) throws NullPointerException {
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+			readGame(new SaveReader(channel));
 		} catch (Exception e) {
 			throw new NullPointerException();
 		}
 	}
 
+	/**
+	 * Load a game from a save held in memory, such as one taken with snapshot().
+	 *
+	 * @param save byte[] of a save in the binary format
+	 * @throws IOException if save is not a complete binary save
+	 */
+	public CivModel(byte[] save) throws IOException {
+		readGame(new SaveReader(Channels.newChannel(new ByteArrayInputStream(save))));
+	}
+
+	/**
+	 * Read a game saved in the binary format, see SaveFormat.
+	 *
+	 * @param in SaveReader positioned at the start of the save
+	 * @throws IOException if the save is not a binary save of a supported version or
+	 *                     is damaged
+	 */
+	private void readGame(SaveReader in) throws IOException {
+		SaveHeader header = SaveHeader.read(in);
+		this.map = header.map;
+		int size = header.size;
+		if (size < 1 || size > MAX_SIZE)
+			throw new IOException("corrupt save: board size " + size);
+		this.round = header.round;
+		this.numPlayers = header.players;
+		this.singlePlayer = header.singlePlayer;
+		this.seed = header.seed;
+		int current = header.current;
+		if ((header.flags & SaveFormat.COMPRESSED) != 0)
+			in.decompress();
+
+		SaveFormat.expect(in, SaveFormat.PLAYERS);
+		ArrayList<Player> players = new ArrayList<Player>();
+		int playerCount = in.getCount(MAX_PLAYERS);
+		for (int i = 0; i < playerCount; i++)
+			players.add(Player.read(in));
+		if (numPlayers < 1 || numPlayers > playerCount || current < 0 || current >= numPlayers)
+			throw new IOException("corrupt save: " + numPlayers + " of " + playerCount + " players in the game");
+		Node[] ring = new Node[numPlayers];
+		for (int i = 0; i < numPlayers; i++)
+			ring[i] = new Node(players.get(i));
+		for (int i = 0; i < numPlayers; i++)
+			ring[i].next = ring[(i + 1) % numPlayers];
+		this.head = ring[0];
+		this.curPlayer = ring[current];
+		this.playerStartingCoords = new ArrayList<int[]>();
+		int coords = in.getCount(MAX_PLAYERS);
+		for (int i = 0; i < coords; i++)
+			playerStartingCoords.add(new int[] { in.getInt(), in.getInt() });
+
+		this.board = new CivBoard(in, size);
+
+		SaveFormat.expect(in, SaveFormat.CITIES);
+		ArrayList<City> cities = new ArrayList<City>();
+		int cityCount = in.getCount(size * size);
+		for (int i = 0; i < cityCount; i++)
+			cities.add(City.read(in, players.get(playerIndex(in, playerCount))));
+		ArrayList<City> registry = new ArrayList<City>(cities.subList(0, in.getCount(cityCount)));
+		for (Player p : players) {
+			int owned = in.getCount(cityCount);
+			for (int i = 0; i < owned; i++)
+				p.addCity(cities.get(in.getCount(cityCount - 1)));
+		}
+
+		FogOfWar fog = FogOfWar.read(in, size, players);
+		board.restore(registry, fog);
+
+		SaveFormat.expect(in, SaveFormat.UNITS);
+		int unitCount = in.getCount(Integer.MAX_VALUE);
+		for (int i = 0; i < unitCount; i++) {
+			Player owner = players.get(playerIndex(in, playerCount));
+			int placement = in.getByte();
+			Unit unit = Unit.read(in, owner);
+			if ((placement & LISTED) != 0)
+				owner.addUnit(unit);
+			if ((placement & ON_BOARD) != 0) {
+				if (unit.getX() < 0 || unit.getX() >= size || unit.getY() < 0 || unit.getY() >= size)
+					throw new IOException("corrupt save: unit off the board at " + unit.getX() + "," + unit.getY());
+				board.setUnit(unit.getY() * size + unit.getX(), unit);
+			}
+		}
+		SaveFormat.expect(in, SaveFormat.END);
+	}
+
+	/**
+	 * Read a reference to a player of the save's player table.
+	 */
+	private static int playerIndex(SaveReader in, int playerCount) throws IOException {
+		int id = in.getInt();
+		if (id < 0 || id >= playerCount)
+			throw new IOException("corrupt save: unknown player " + id);
+		return id;
+	}
+
 	/**
 	 * getter method for the tile held at row, col in our Board
 	 *
@@ -112,6 +253,26 @@ public class CivModel extends Observable implements Serializable {
 		return this.board.getTile(x, y);
 	}
 
+	/**
+	 * getter method for the fog of war of our Board, so whole areas can be revealed
+	 * or checked without going through individual tiles
+	 *
+	 * @return FogOfWar tracking what each player has revealed
+	 */
+	public FogOfWar getFog() {
+		return this.board.getFog();
+	}
+
+	/**
+	 * getter method for the spatial index of the cities on our Board, used by the
+	 * AI to find targets without scanning the whole map
+	 *
+	 * @return CityIndex of every city standing on the board
+	 */
+	public CityIndex getCityIndex() {
+		return this.board.getCityIndex();
+	}
+
 	/**
 	 * for JUnit testing
 	 */
@@ -129,12 +290,121 @@ public class CivModel extends Observable implements Serializable {
 	}
 
 	/**
-	 * Set the state of the model to changed and notify Observers that the model has
-	 * been updated. Pass the current game state (board) to all Observers.
+	 * The bus this game's events are published on, see GameEvent.
+	 *
+	 * @return EventBus of this game
+	 */
+	public EventBus getEvents() {
+		return events;
+	}
+
+	/**
+	 * Publish a ModelChanged event holding what changed since the last one, or
+	 * nothing if nothing changed. While a batch is open the change is held back until
+	 * the outermost batch finishes.
 	 */
 	public void changeAndNotify() {
-		this.setChanged();
-		this.notifyObservers(this.board);
+		if (batchDepth == 0)
+			flush();
+	}
+
+	/**
+	 * Start a batch of changes, such as a whole turn, that listeners hear about once,
+	 * when finishBatch() is called as many times as this was. Batches may nest.
+	 */
+	public void startBatch() {
+		batchDepth++;
+	}
+
+	/**
+	 * Finish a batch started by startBatch(), and publish everything that
+	 * changed during it if it was the outermost batch.
+	 *
+	 * @throws IllegalStateException if no batch is open
+	 */
+	public void finishBatch() {
+		if (batchDepth == 0)
+			throw new IllegalStateException("no batch of changes to finish");
+		if (--batchDepth == 0)
+			flush();
+	}
+
+	/**
+	 * Record that a unit moved, was created, was hurt or healed, or died, so its tile
+	 * is redrawn.
+	 *
+	 * @param unit the Unit that changed
+	 */
+	public void markUnit(Unit unit) {
+		if (tracksChanges())
+			change().addUnit(unit);
+	}
+
+	/**
+	 * Record that a city was founded, damaged, grew or was destroyed, so its tile is
+	 * redrawn.
+	 *
+	 * @param city the City that changed
+	 */
+	public void markCity(City city) {
+		if (tracksChanges())
+			change().addCity(city);
+	}
+
+	/**
+	 * Record that a player gained or lost units or cities.
+	 *
+	 * @param player the Player that changed
+	 */
+	public void markPlayer(Player player) {
+		if (tracksChanges())
+			change().addPlayer(player);
+	}
+
+	/**
+	 * Record that some player revealed more of the board.
+	 */
+	public void markFog() {
+		if (tracksChanges())
+			change().setFog();
+	}
+
+	/**
+	 * Whether units, cities and players marked as changed are collected, which they
+	 * are only while someone listens for ModelChanged.
+	 *
+	 * @return true if marking a change is worth the work of finding it
+	 */
+	public boolean tracksChanges() {
+		return events.hasSubscribers(GameEvent.ModelChanged.class);
+	}
+
+	/**
+	 * The change being collected. Units, cities and players are only collected while
+	 * someone listens for ModelChanged, so a game played without a view holds on to
+	 * nothing.
+	 */
+	private ModelChange change() {
+		if (pending == null)
+			pending = new ModelChange();
+		return pending;
+	}
+
+	/**
+	 * Tell listeners what changed since they were last told, unless nothing did.
+	 */
+	private void flush() {
+		ModelChange change = change();
+		pending = null;
+		change.getTiles().or(board.takeChangedTiles());
+		int size = board.getSize();
+		for (Unit unit : change.getUnits())
+			change.addTile(unit.getY() * size + unit.getX());
+		for (City city : change.getCities())
+			change.addTile(city.getY() * size + city.getX());
+		if (change.isEmpty())
+			return;
+		events.publish(new GameEvent.ModelChanged(change));
 	}
 
 	/**
@@ -151,6 +421,7 @@ public class CivModel extends Observable implements Serializable {
 	 */
 	public void nextPlayer() {
 		curPlayer = curPlayer.next;
+		change().setTurn();
 		if (curPlayer.equals(head)) {
 			round++;
 		}
@@ -199,6 +470,9 @@ public class CivModel extends Observable implements Serializable {
 		}
 		numPlayers--;
 		prev.next = next;
+		markPlayer(deadGuy);
+		if (cur == head)
+			head = next; // keep counting rounds from a player still in the game
 		return true;
 	}
 
@@ -244,10 +518,10 @@ public class CivModel extends Observable implements Serializable {
 	/**
 	 * Initialize player starting coordinates based on map and number of players
 	 * 
-	 * @param map  int specifying which map the user has selected (1-4)
-	 * @param size int specifying the size of the map (only applicable if map 4)
-	 * @return a String that will be the location of the map to open, unless map ==
-	 *         4
+	 * @param map  int specifying which map the user has selected (1-5)
+	 * @param size int specifying the size of the map (only applicable if map 4 or 5)
+	 * @return a String that will be the location of the map to open, unless map is
+	 *         4 or 5
 	 */
 	private String initPlayerStartingCoords(int map, int size) {
 		ArrayList<int[]> allStartingCoords = new ArrayList<int[]>();
@@ -268,7 +542,7 @@ public class CivModel extends Observable implements Serializable {
 			allStartingCoords.add(new int[] { 15, 2 });
 			allStartingCoords.add(new int[] { 2, 13 });
 			mapName = "./src/models/Thermopylae.txt";
-		} else if (map == 4) {
+		} else if (map == 4 || map == 5) {
 			allStartingCoords.add(new int[] { 1, 1 });
 			allStartingCoords.add(new int[] { size - 2, size - 2 });
 			allStartingCoords.add(new int[] { size - 2, 1 });
@@ -282,6 +556,27 @@ public class CivModel extends Observable implements Serializable {
 
 	}
 
+	/**
+	 * Build the board of a new game: generated for maps 4 and 5, otherwise loaded
+	 * from one of the map files that ship with the game. A map file that cannot be
+	 * loaded is a broken install rather than something to recover from.
+	 *
+	 * @param mapStr String location of the map file, "" for a generated map
+	 * @param size   int specifying the size of the map (only applicable if map 4 or 5)
+	 * @return CivBoard of the new game
+	 */
+	private CivBoard newBoard(String mapStr, int size) {
+		if (map == 4)
+			return new CivBoard(size, seed);
+		if (map == 5)
+			return new CivBoard(size, seed, playerStartingCoords);
+		try {
+			return new CivBoard(mapStr);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
 	/**
 	 * Provide access to the list of starting coordinates for the controller to
 	 * place starting units
@@ -304,28 +599,23 @@ public class CivModel extends Observable implements Serializable {
 
 	/**
 	 * Controller calls done in its close() method. done() saves the whole game
-	 * state by writing it to an ObjectOutputStream.
+	 * state to save_game.dat in the binary format described in SaveFormat, without
+	 * changing the game.
 	 * 
 	 * @return true if the save was successful, false if it failed.
 	 */
 	public boolean done() {
+		// written beside the save and moved over it, never into it: a large board
+		// loaded from the save may still be paging its tiles in from the old file,
+		// and has to be done with it before the file can be replaced
+		board.pageInAll();
+		Path temp = Paths.get(SAVE_FILE + ".tmp");
 		try {
-			FileOutputStream fileStream = new FileOutputStream("save_game.dat");
-			ObjectOutputStream oos = new ObjectOutputStream(fileStream);
-			this.board.serializeBoard(oos);
-			oos.writeObject(this.head);
-			oos.writeObject(this.singlePlayer);
-			oos.writeObject(this.round);
-			oos.writeObject(this.numPlayers);
-			oos.writeObject(this.playerStartingCoords);
-			Node playerWhoseTurnItIs = curPlayer;
-			oos.writeObject(curPlayer);
-			nextPlayer();
-			while (!(curPlayer.equals(playerWhoseTurnItIs))) {
-				oos.writeObject(curPlayer);
-				nextPlayer();
+			try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+					StandardOpenOption.TRUNCATE_EXISTING)) {
+				writeGame(channel, System.currentTimeMillis());
 			}
-			oos.close();
+			SaveFormat.replace(temp, Paths.get(SAVE_FILE));
 			return true;
 		} catch (Exception e) {
 			e.printStackTrace();
@@ -333,6 +623,188 @@ public class CivModel extends Observable implements Serializable {
 		}
 	}
 
+	/**
+	 * Copy of the whole game state in the binary save format, for saving it somewhere
+	 * else later. Taking it is about as cheap as copying the board, so it can be done
+	 * between turns on the thread playing the game; the game itself is not changed.
+	 * Snapshots are never compressed, to keep them that cheap.
+	 *
+	 * @param savedAt long of ms since the epoch to record as the time of the save
+	 * @return byte[] holding a complete save
+	 */
+	public byte[] snapshot(long savedAt) {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream(board.getSize() * board.getSize() + 4096);
+		try {
+			writeGame(Channels.newChannel(bytes), savedAt, false);
+		} catch (IOException e) { // writing to memory does not fail
+			throw new IllegalStateException(e);
+		}
+		return bytes.toByteArray();
+	}
+
+	/**
+	 * Choose whether done() and writeGame() compress saves. They do not unless told
+	 * to: compressing a large board takes several times longer than writing it out,
+	 * for a save about a quarter of the size. Compressed and uncompressed saves both
+	 * load.
+	 *
+	 * @param compress true to compress saves
+	 */
+	public void setSaveCompression(boolean compress) {
+		this.compressSaves = compress;
+	}
+
+	/**
+	 * Write the whole game state to channel in the binary save format, compressed
+	 * if setSaveCompression(true) was called. Games played from the same seed
+	 * the same way write the same bytes when given the same savedAt.
+	 *
+	 * @param channel WritableByteChannel to write to, left open
+	 * @param savedAt long of ms since the epoch to record as the time of the save
+	 * @throws IOException if writing fails
+	 */
+	public void writeGame(WritableByteChannel channel, long savedAt) throws IOException {
+		writeGame(channel, savedAt, compressSaves);
+	}
+
+	/**
+	 * Write the whole game state to channel, compressing everything after the header
+	 * if asked to. See SaveFormat.
+	 */
+	private void writeGame(WritableByteChannel channel, long savedAt, boolean compress) throws IOException {
+		SaveWriter out = new SaveWriter(channel);
+		// players still in the game in turn order, then knocked out ones still referred to
+		ArrayList<Player> players = new ArrayList<Player>();
+		IdentityHashMap<Player, Integer> playerIds = new IdentityHashMap<Player, Integer>();
+		Node n = head;
+		for (int i = 0; i < numPlayers; i++, n = n.next)
+			addPlayer(n.getPlayer(), players, playerIds);
+		for (City c : board.getCityRegistry())
+			addPlayer(c.getOwner(), players, playerIds);
+		for (Player p : board.getFog().getPlayers())
+			addPlayer(p, players, playerIds);
+		// each player's units in order, and whether they stand on the board
+		int size = board.size;
+		ArrayList<Unit> units = new ArrayList<Unit>();
+		ArrayList<Integer> placements = new ArrayList<Integer>();
+		int onBoard = 0;
+		for (int p = 0; p < players.size(); p++) {
+			for (Unit u : players.get(p).getUnits()) {
+				boolean placed = u.getX() >= 0 && u.getX() < size && u.getY() >= 0 && u.getY() < size
+						&& board.getUnit(u.getY() * size + u.getX()) == u;
+				units.add(u);
+				placements.add(LISTED | (placed ? ON_BOARD : 0));
+				if (placed)
+					onBoard++;
+			}
+		}
+		if (onBoard != board.getUnitCount()) {
+			// some unit on the board is in no player's list, find it the slow way
+			IdentityHashMap<Unit, Boolean> seen = new IdentityHashMap<Unit, Boolean>();
+			for (Unit u : units)
+				seen.put(u, true);
+			for (int i = 0; i < size * size; i++) {
+				Unit u = board.getUnit(i);
+				if (u != null && !seen.containsKey(u)) {
+					seen.put(u, true);
+					addPlayer(u.getOwner(), players, playerIds);
+					units.add(u);
+					placements.add(ON_BOARD);
+				}
+			}
+		}
+
+		new SaveHeader(compress ? SaveFormat.COMPRESSED : 0, map, size, round, numPlayers, singlePlayer, seed,
+				savedAt, playerIds.get(curPlayer.getPlayer())).write(out);
+		if (compress)
+			out.compress(Deflater.BEST_SPEED);
+
+		out.putInt(SaveFormat.PLAYERS);
+		out.putInt(players.size());
+		for (Player p : players)
+			p.write(out);
+		out.putInt(playerStartingCoords.size());
+		for (int[] coord : playerStartingCoords) {
+			out.putInt(coord[0]);
+			out.putInt(coord[1]);
+		}
+
+		board.writeLayers(out);
+
+		// cities the owner layer refers to, then any others the players hold
+		ArrayList<City> cities = new ArrayList<City>(board.getCityRegistry());
+		IdentityHashMap<City, Integer> cityIds = new IdentityHashMap<City, Integer>();
+		for (int i = 0; i < cities.size(); i++)
+			cityIds.put(cities.get(i), i);
+		for (Player p : players) {
+			for (City c : p.getCities()) {
+				if (!cityIds.containsKey(c)) {
+					cityIds.put(c, cities.size());
+					cities.add(c);
+				}
+			}
+		}
+		out.putInt(SaveFormat.CITIES);
+		out.putInt(cities.size());
+		for (City c : cities) {
+			out.putInt(playerIds.get(c.getOwner()));
+			c.write(out);
+		}
+		out.putInt(board.getCityRegistry().size());
+		for (Player p : players) {
+			out.putInt(p.getCities().size());
+			for (City c : p.getCities())
+				out.putInt(cityIds.get(c));
+		}
+
+		board.getFog().write(out, playerIds);
+
+		out.putInt(SaveFormat.UNITS);
+		out.putInt(units.size());
+		for (int i = 0; i < units.size(); i++) {
+			Unit u = units.get(i);
+			out.putInt(playerIds.get(u.getOwner()));
+			out.putByte(placements.get(i));
+			u.write(out);
+		}
+		out.putInt(SaveFormat.END);
+		out.finish();
+	}
+
+	/**
+	 * Give a player the next position in a save's player table if it has none yet.
+	 */
+	private static void addPlayer(Player p, ArrayList<Player> players, IdentityHashMap<Player, Integer> ids) {
+		if (!ids.containsKey(p)) {
+			ids.put(p, players.size());
+			players.add(p);
+		}
+	}
+
+	/**
+	 * getter for the seed the game was started from
+	 *
+	 * @return long the map and the computer's decisions are drawn from
+	 */
+	public long getSeed() {
+		return seed;
+	}
+
+	/**
+	 * Seed for the random choices the computer makes during player's turn in the
+	 * current round. It depends only on the game seed, the round and the player, so
+	 * any turn of a game can be replayed on its own.
+	 *
+	 * @param player Player whose turn it is
+	 * @return long to seed the turn's random choices with
+	 */
+	public long turnSeed(Player player) {
+		long h = seed;
+		h = (h ^ round) * 0x9E3779B97F4A7C15L;
+		h = (h ^ player.getID().hashCode()) * 0xBF58476D1CE4E5B9L;
+		return h ^ (h >>> 31);
+	}
+
 	/**
 	 * Node class for keeping a wrapped list of players
 	 *
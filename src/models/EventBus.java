@@ -0,0 +1,214 @@
+package models;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * EventBus.java
+ *
+ * Hands every GameEvent published by a game to the listeners subscribed to its kind.
+ * A listener subscribed to GameEvent itself receives every event.
+ *
+ * A listener is called either on the thread publishing, before publish() returns, or on
+ * an executor of its own. A listener on an executor gets a bounded queue; the events
+ * queued for it are delivered one at a time and in the order they were published, and
+ * what happens when its queue is full is chosen by its Overflow. Either way a slow
+ * listener holds up the game by no more than it asked to.
+ *
+ * Subscribing, cancelling and publishing may happen on any thread.
+ *
+ * @field subscribers every live Subscription, by the kind of event it is for
+ */
+public class EventBus {
+
+	/**
+	 * What publishing does when a listener's queue is full.
+	 */
+	public enum Overflow {
+		/** wait until the listener takes an event off its queue */
+		BLOCK,
+		/** drop the new event, counting it, see Subscription.getDropped() */
+		DROP
+	}
+
+	private static final List<Subscription<?>> NONE = Collections.emptyList();
+
+	private final ConcurrentHashMap<Class<?>, CopyOnWriteArrayList<Subscription<?>>> subscribers = new ConcurrentHashMap<Class<?>, CopyOnWriteArrayList<Subscription<?>>>();
+
+	/**
+	 * Call a listener with every event of a kind, on the thread that publishes it.
+	 *
+	 * @param type     Class of the events to listen to
+	 * @param listener Consumer to call
+	 * @return Subscription to cancel when done
+	 */
+	public <E extends GameEvent> Subscription<E> subscribe(Class<E> type, Consumer<? super E> listener) {
+		return add(new Subscription<E>(this, type, listener, null, 0, Overflow.BLOCK));
+	}
+
+	/**
+	 * Call a listener with every event of a kind on the given executor. Events wait in a
+	 * queue of the given capacity until the listener takes them. A listener that runs
+	 * on the thread playing the game, such as one on the JavaFX thread of a game the
+	 * view plays, must not BLOCK, as its queue would never drain.
+	 *
+	 * @param type     Class of the events to listen to
+	 * @param listener Consumer to call
+	 * @param executor Executor to call it on
+	 * @param capacity int of events that may wait for the listener
+	 * @param overflow Overflow saying what to do once that many are waiting
+	 * @return Subscription to cancel when done
+	 */
+	public <E extends GameEvent> Subscription<E> subscribe(Class<E> type, Consumer<? super E> listener,
+			Executor executor, int capacity, Overflow overflow) {
+		if (capacity < 1)
+			throw new IllegalArgumentException("queue capacity must be positive");
+		return add(new Subscription<E>(this, type, listener, executor, capacity, overflow));
+	}
+
+	/**
+	 * Whether anyone listens to events of a kind, so events nobody wants need not be
+	 * put together.
+	 *
+	 * @param type Class of the events
+	 * @return true if some listener would receive them
+	 */
+	public boolean hasSubscribers(Class<? extends GameEvent> type) {
+		return !list(type).isEmpty() || !list(GameEvent.class).isEmpty();
+	}
+
+	/**
+	 * Hand an event to every listener subscribed to its kind or to every event.
+	 *
+	 * @param event GameEvent to publish
+	 */
+	public void publish(GameEvent event) {
+		for (Subscription<?> s : list(event.getClass()))
+			s.deliver(event);
+		for (Subscription<?> s : list(GameEvent.class))
+			s.deliver(event);
+	}
+
+	private <E extends GameEvent> Subscription<E> add(Subscription<E> subscription) {
+		subscribers.computeIfAbsent(subscription.type, t -> new CopyOnWriteArrayList<Subscription<?>>())
+				.add(subscription);
+		return subscription;
+	}
+
+	private List<Subscription<?>> list(Class<?> type) {
+		List<Subscription<?>> list = subscribers.get(type);
+		return list == null ? NONE : list;
+	}
+
+	/**
+	 * One listener's subscription to one kind of event.
+	 *
+	 * @field bus EventBus subscribed to
+	 * @field type Class of the events listened to
+	 * @field listener Consumer called with each event
+	 * @field executor Executor the listener is called on, null to call it on the
+	 *        publishing thread
+	 * @field queue events waiting for a listener on an executor, null otherwise
+	 * @field overflow what publishing does when the queue is full
+	 * @field scheduled whether a task draining the queue is on the executor
+	 * @field cancelled whether the subscription was cancelled
+	 * @field dropped number of events dropped because the queue was full
+	 */
+	public static final class Subscription<E extends GameEvent> {
+		private final EventBus bus;
+		private final Class<E> type;
+		private final Consumer<? super E> listener;
+		private final Executor executor;
+		private final ArrayBlockingQueue<E> queue;
+		private final Overflow overflow;
+		private final AtomicBoolean scheduled = new AtomicBoolean();
+		private volatile boolean cancelled;
+		private final AtomicLong dropped = new AtomicLong();
+
+		private Subscription(EventBus bus, Class<E> type, Consumer<? super E> listener, Executor executor,
+				int capacity, Overflow overflow) {
+			this.bus = bus;
+			this.type = type;
+			this.listener = listener;
+			this.executor = executor;
+			this.queue = executor == null ? null : new ArrayBlockingQueue<E>(capacity);
+			this.overflow = overflow;
+		}
+
+		/**
+		 * Stop listening. Events already queued for the listener are dropped.
+		 */
+		public void cancel() {
+			cancelled = true;
+			bus.list(type).remove(this);
+			if (queue != null)
+				queue.clear();
+		}
+
+		/**
+		 * @return long of events dropped because the listener's queue was full
+		 */
+		public long getDropped() {
+			return dropped.get();
+		}
+
+		private void deliver(GameEvent event) {
+			if (cancelled)
+				return;
+			E e = type.cast(event);
+			if (executor == null) {
+				listener.accept(e);
+				return;
+			}
+			if (overflow == Overflow.BLOCK) {
+				try {
+					queue.put(e);
+				} catch (InterruptedException ie) {
+					Thread.currentThread().interrupt(); // the game is being stopped
+					dropped.incrementAndGet();
+					return;
+				}
+			} else if (!queue.offer(e)) {
+				dropped.incrementAndGet();
+				return;
+			}
+			schedule();
+		}
+
+		private void schedule() {
+			if (!scheduled.compareAndSet(false, true))
+				return;
+			try {
+				executor.execute(this::drain);
+			} catch (RejectedExecutionException ex) { // the listener's executor was shut down
+				scheduled.set(false);
+				cancel();
+			}
+		}
+
+		/**
+		 * Deliver what is queued, then look again in case an event arrived after the
+		 * queue was found empty but before this task was done.
+		 */
+		private void drain() {
+			try {
+				E e;
+				while (!cancelled && (e = queue.poll()) != null)
+					listener.accept(e);
+			} finally {
+				scheduled.set(false);
+			}
+			if (!cancelled && !queue.isEmpty())
+				schedule();
+		}
+	}
+
+}
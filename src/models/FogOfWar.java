@@ -0,0 +1,265 @@
+package models;
+
+import java.io.IOException;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * FogOfWar.java
+ *
+ * Tracks which tiles of a board each player has revealed. Every player gets one packed
+ * bitset over the whole board, where bit y * size + x is set once that tile is revealed.
+ * Single tiles are revealed and looked up in O(1), and rectangular areas are revealed or
+ * queried a 64 bit word at a time.
+ *
+ * Players are kept in the order they first revealed a tile rather than in a hash map, so
+ * two games played the same way serialize to the same bytes. There are at most four of
+ * them, so finding a player's bitset is a short scan.
+ *
+ * @field size int specifying the size of the board this fog covers
+ * @field players every player that has revealed a tile, in the order they first did
+ * @field revealed bitset of the player at the same position in players
+ */
+public class FogOfWar implements Serializable {
+
+	private static final long serialVersionUID = 1L;
+
+	private final int size;
+	private final ArrayList<Player> players = new ArrayList<Player>();
+	private final ArrayList<long[]> revealed = new ArrayList<long[]>();
+
+	/**
+	 * Create fog for a size x size board where every tile is hidden from everyone.
+	 *
+	 * @param size size of the board; board is size x size
+	 */
+	public FogOfWar(int size) {
+		this.size = size;
+	}
+
+	/**
+	 * Whether the tile at x,y has been revealed to the player. Tiles off the board are
+	 * never revealed.
+	 *
+	 * @param player Player in question
+	 * @param x int specifying x location on the board
+	 * @param y int specifying y location on the board
+	 * @return true if the player can see the tile
+	 */
+	public boolean isRevealed(Player player, int x, int y) {
+		if (x < 0 || x >= size || y < 0 || y >= size)
+			return false;
+		return isRevealed(player, y * size + x);
+	}
+
+	/**
+	 * Whether the tile at the given board index has been revealed to the player.
+	 *
+	 * @param player Player in question
+	 * @param index y * size + x of the tile
+	 * @return true if the player can see the tile
+	 */
+	public boolean isRevealed(Player player, int index) {
+		long[] bits = bitsOf(player);
+		return bits != null && (bits[index >>> 6] & (1L << index)) != 0;
+	}
+
+	/**
+	 * Reveal the tile at the given board index to the player.
+	 *
+	 * @param player Player the tile is revealed to
+	 * @param index y * size + x of the tile
+	 */
+	public void reveal(Player player, int index) {
+		bitsFor(player)[index >>> 6] |= 1L << index;
+	}
+
+	/**
+	 * Reveal every tile in the rectangle from x0,y0 to x1,y1 (inclusive) to the player.
+	 * The rectangle is clipped to the board.
+	 *
+	 * @param player Player the tiles are revealed to
+	 * @param x0 left column
+	 * @param y0 top row
+	 * @param x1 right column
+	 * @param y1 bottom row
+	 */
+	public void revealArea(Player player, int x0, int y0, int x1, int y1) {
+		x0 = Math.max(x0, 0);
+		y0 = Math.max(y0, 0);
+		x1 = Math.min(x1, size - 1);
+		y1 = Math.min(y1, size - 1);
+		if (x0 > x1 || y0 > y1)
+			return;
+		long[] bits = bitsFor(player);
+		for (int y = y0; y <= y1; y++) {
+			int from = y * size + x0;
+			int to = y * size + x1;
+			int fromWord = from >>> 6;
+			int toWord = to >>> 6;
+			long firstMask = -1L << from;
+			long lastMask = -1L >>> (63 - (to & 63));
+			if (fromWord == toWord) {
+				bits[fromWord] |= firstMask & lastMask;
+			} else {
+				bits[fromWord] |= firstMask;
+				for (int w = fromWord + 1; w < toWord; w++)
+					bits[w] = -1L;
+				bits[toWord] |= lastMask;
+			}
+		}
+	}
+
+	/**
+	 * Whether any tile in the rectangle from x0,y0 to x1,y1 (inclusive) is still hidden
+	 * from the player. Tiles off the board are not considered, so "any hidden neighbour"
+	 * of x,y is anyHidden(player, x - 1, y - 1, x + 1, y + 1).
+	 *
+	 * @param player Player in question
+	 * @param x0 left column
+	 * @param y0 top row
+	 * @param x1 right column
+	 * @param y1 bottom row
+	 * @return true if at least one on-board tile of the rectangle is hidden
+	 */
+	public boolean anyHidden(Player player, int x0, int y0, int x1, int y1) {
+		return anyMatching(player, x0, y0, x1, y1, false);
+	}
+
+	/**
+	 * Whether any tile in the rectangle from x0,y0 to x1,y1 (inclusive) has been revealed
+	 * to the player. Tiles off the board are not considered.
+	 *
+	 * @param player Player in question
+	 * @param x0 left column
+	 * @param y0 top row
+	 * @param x1 right column
+	 * @param y1 bottom row
+	 * @return true if at least one on-board tile of the rectangle is revealed
+	 */
+	public boolean anyRevealed(Player player, int x0, int y0, int x1, int y1) {
+		return anyMatching(player, x0, y0, x1, y1, true);
+	}
+
+	/**
+	 * Scan the clipped rectangle row by row, a word at a time, for a tile whose revealed
+	 * bit equals the one asked for.
+	 *
+	 * @param wantRevealed true to look for a revealed tile, false for a hidden one
+	 * @return true if such a tile exists
+	 */
+	private boolean anyMatching(Player player, int x0, int y0, int x1, int y1, boolean wantRevealed) {
+		x0 = Math.max(x0, 0);
+		y0 = Math.max(y0, 0);
+		x1 = Math.min(x1, size - 1);
+		y1 = Math.min(y1, size - 1);
+		if (x0 > x1 || y0 > y1)
+			return false;
+		long[] bits = bitsOf(player);
+		if (bits == null)
+			return !wantRevealed;
+		long flip = wantRevealed ? 0 : -1L;
+		for (int y = y0; y <= y1; y++) {
+			int from = y * size + x0;
+			int to = y * size + x1;
+			int fromWord = from >>> 6;
+			int toWord = to >>> 6;
+			long firstMask = -1L << from;
+			long lastMask = -1L >>> (63 - (to & 63));
+			if (fromWord == toWord) {
+				if (((bits[fromWord] ^ flip) & firstMask & lastMask) != 0)
+					return true;
+				continue;
+			}
+			if (((bits[fromWord] ^ flip) & firstMask) != 0)
+				return true;
+			for (int w = fromWord + 1; w < toWord; w++) {
+				if ((bits[w] ^ flip) != 0)
+					return true;
+			}
+			if (((bits[toWord] ^ flip) & lastMask) != 0)
+				return true;
+		}
+		return false;
+	}
+
+	/**
+	 * Write the FOG section of a binary save.
+	 *
+	 * @param out       SaveWriter to write to
+	 * @param playerIds position of every player in the save's player table
+	 * @throws IOException if writing fails
+	 */
+	void write(SaveWriter out, Map<Player, Integer> playerIds) throws IOException {
+		out.putInt(SaveFormat.FOG);
+		out.putInt(players.size());
+		for (int i = 0; i < players.size(); i++) {
+			out.putInt(playerIds.get(players.get(i)));
+			out.putLongs(revealed.get(i));
+		}
+	}
+
+	/**
+	 * Read the FOG section of a binary save.
+	 *
+	 * @param in      SaveReader positioned at the section
+	 * @param size    size of the saved board
+	 * @param players the save's player table
+	 * @return the FogOfWar read
+	 * @throws IOException if reading fails or the section refers to unknown players
+	 */
+	static FogOfWar read(SaveReader in, int size, List<Player> players) throws IOException {
+		SaveFormat.expect(in, SaveFormat.FOG);
+		FogOfWar fog = new FogOfWar(size);
+		int count = in.getCount(players.size());
+		for (int i = 0; i < count; i++) {
+			int id = in.getInt();
+			if (id < 0 || id >= players.size())
+				throw new IOException("corrupt save: fog of unknown player " + id);
+			in.getLongs(fog.bitsFor(players.get(id)));
+		}
+		return fog;
+	}
+
+	/**
+	 * Players that have revealed anything, in the order they first did.
+	 *
+	 * @return List of players with a bitset
+	 */
+	List<Player> getPlayers() {
+		return players;
+	}
+
+	/**
+	 * Get the player's bitset, creating an all hidden one if they have none yet.
+	 *
+	 * @param player Player whose bitset is wanted
+	 * @return the player's bitset
+	 */
+	private long[] bitsFor(Player player) {
+		long[] bits = bitsOf(player);
+		if (bits == null) {
+			bits = new long[(size * size + 63) >>> 6];
+			players.add(player);
+			revealed.add(bits);
+		}
+		return bits;
+	}
+
+	/**
+	 * Get the player's bitset if they have revealed anything.
+	 *
+	 * @param player Player whose bitset is wanted
+	 * @return the player's bitset, or null if they have none yet
+	 */
+	private long[] bitsOf(Player player) {
+		for (int i = 0; i < players.size(); i++) {
+			if (players.get(i) == player)
+				return revealed.get(i);
+		}
+		return null;
+	}
+
+}
@@ -0,0 +1,152 @@
+package models;
+
+import components.City;
+import components.Unit;
+
+/**
+ * GameEvent.java
+ *
+ * Something that happened in a game, published on the model's EventBus. Each kind of
+ * event is its own class, so listeners subscribe to the kinds they need and receive them
+ * already typed. Events only describe what happened; the units, cities and players they
+ * name are the live objects of the game and may have changed again by the time a
+ * listener on another thread sees them.
+ */
+public abstract class GameEvent {
+
+	private GameEvent() {
+	}
+
+	/**
+	 * A unit moved one tile, after winning any fight for the tile it moved onto.
+	 *
+	 * @field unit the Unit that moved
+	 * @field fromX int of the x location it left
+	 * @field fromY int of the y location it left
+	 * @field toX int of the x location it moved to
+	 * @field toY int of the y location it moved to
+	 */
+	public static final class UnitMoved extends GameEvent {
+		public final Unit unit;
+		public final int fromX;
+		public final int fromY;
+		public final int toX;
+		public final int toY;
+
+		public UnitMoved(Unit unit, int fromX, int fromY, int toX, int toY) {
+			this.unit = unit;
+			this.fromX = fromX;
+			this.fromY = fromY;
+			this.toX = toX;
+			this.toY = toY;
+		}
+	}
+
+	/**
+	 * A unit attacked a unit or a city and the fight is over.
+	 *
+	 * @field attacker the Unit that attacked
+	 * @field defender the Unit attacked, null if a city was
+	 * @field city the City attacked, null if a unit was
+	 * @field attackerDied whether the attacker was killed by the counterattack
+	 * @field defenderDied whether the unit attacked was killed or the city destroyed
+	 */
+	public static final class CombatResolved extends GameEvent {
+		public final Unit attacker;
+		public final Unit defender;
+		public final City city;
+		public final boolean attackerDied;
+		public final boolean defenderDied;
+
+		public CombatResolved(Unit attacker, Unit defender, City city, boolean attackerDied, boolean defenderDied) {
+			this.attacker = attacker;
+			this.defender = defender;
+			this.city = city;
+			this.attackerDied = attackerDied;
+			this.defenderDied = defenderDied;
+		}
+	}
+
+	/**
+	 * A settler founded a city.
+	 *
+	 * @field city the new City
+	 */
+	public static final class CityFounded extends GameEvent {
+		public final City city;
+
+		public CityFounded(City city) {
+			this.city = city;
+		}
+	}
+
+	/**
+	 * A city was destroyed. Its owner may have left the game with it.
+	 *
+	 * @field city the City destroyed
+	 */
+	public static final class CityDestroyed extends GameEvent {
+		public final City city;
+
+		public CityDestroyed(City city) {
+			this.city = city;
+		}
+	}
+
+	/**
+	 * A player revealed the tiles of an area, some of which they may have seen before.
+	 * The area may reach past the edges of the board.
+	 *
+	 * @field player the Player who revealed the area
+	 * @field left int of the area's smallest x
+	 * @field top int of the area's smallest y
+	 * @field right int of the area's largest x
+	 * @field bottom int of the area's largest y
+	 */
+	public static final class TilesRevealed extends GameEvent {
+		public final Player player;
+		public final int left;
+		public final int top;
+		public final int right;
+		public final int bottom;
+
+		public TilesRevealed(Player player, int left, int top, int right, int bottom) {
+			this.player = player;
+			this.left = left;
+			this.top = top;
+			this.right = right;
+			this.bottom = bottom;
+		}
+	}
+
+	/**
+	 * A player's turn started, before any of its housekeeping was done.
+	 *
+	 * @field player the Player whose turn it is
+	 * @field round int of the round the turn belongs to
+	 */
+	public static final class TurnStarted extends GameEvent {
+		public final Player player;
+		public final int round;
+
+		public TurnStarted(Player player, int round) {
+			this.player = player;
+			this.round = round;
+		}
+	}
+
+	/**
+	 * What changed since the last ModelChanged, published once per batch of changes,
+	 * see CivModel.startBatch(). This is what a view redraws from.
+	 *
+	 * @field change ModelChange holding what changed
+	 */
+	public static final class ModelChanged extends GameEvent {
+		public final ModelChange change;
+
+		public ModelChanged(ModelChange change) {
+			this.change = change;
+		}
+	}
+
+}
@@ -0,0 +1,283 @@
+package models;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Locale;
+
+import components.Tile;
+
+/**
+ * MapReader.java
+ *
+ * Parses a map file straight out of a read-only mapping of the file, a byte at a time,
+ * without creating a String per line or per tile.
+ *
+ * A map file holds the width and height of the board on its first line, followed by one
+ * line per tile of the form
+ *
+ * 	terrain resource
+ *
+ * where terrain is field, hill, swamp, water or mountain and resource is n for none, w
+ * for wheat, h for horse or i for iron. Tiles are listed column by column: the first
+ * size lines are the tiles at x = 0 from y = 0 down, the next size lines those at x = 1,
+ * and so on. A tile line may start with a count, as in
+ *
+ * 	40 water n
+ *
+ * standing for that many tiles of the same kind in a row, which keeps large authored maps
+ * small. Blank lines are skipped and anything after "//" is a comment.
+ *
+ * A file that does not follow this is rejected with an IOException naming the file, line
+ * and column of the problem, as in "Map1.txt:398:1: unknown terrain fiehillld".
+ *
+ * @field TERRAIN_NAMES name of each Tile.terrainTypes in a map file, by ordinal
+ * @field RESOURCE_LETTERS letter of each resource in a map file, by its index in
+ *        CivBoard.RESOURCES
+ * @field MAX_SIZE largest board whose tiles can be counted in an int
+ * @field file Path of the map file, for error messages
+ * @field in the mapped file
+ * @field limit bytes in the file
+ * @field pos index in the file of the next byte to parse
+ * @field line number of the line being parsed, counting from 1
+ * @field lineStart index in the file of the start of that line
+ * @field size int of the board's width and height, read by the constructor
+ */
+final class MapReader {
+
+	private static final byte[][] TERRAIN_NAMES = new byte[Tile.terrainTypes.values().length][];
+	static {
+		for (Tile.terrainTypes type : Tile.terrainTypes.values())
+			TERRAIN_NAMES[type.ordinal()] = type.name().toLowerCase(Locale.ROOT).getBytes(StandardCharsets.US_ASCII);
+	}
+	private static final byte[] RESOURCE_LETTERS = { 'n', 'w', 'h', 'i' };
+	private static final int MAX_SIZE = 46340;
+
+	private final Path file;
+	private final ByteBuffer in;
+	private final int limit;
+	private int pos;
+	private int line = 1;
+	private int lineStart;
+	private final int size;
+
+	/**
+	 * Map the file into memory and read the size of the board from its first line.
+	 *
+	 * @param file Path of the map file
+	 * @throws IOException if the file cannot be read or does not start with a size
+	 */
+	MapReader(Path file) throws IOException {
+		this.file = file;
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+			if (channel.size() > Integer.MAX_VALUE)
+				throw new IOException(file + ": too large for a map file");
+			in = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+		}
+		limit = in.limit();
+		skipBlankLines();
+		int start = pos;
+		if (pos == limit || !isDigit(in.get(pos)))
+			throw error(start, "expected the size of the board");
+		int size = readNumber();
+		if (size == 0 || size > MAX_SIZE)
+			throw error(start, "board size must be between 1 and " + MAX_SIZE);
+		endLine("size");
+		this.size = size;
+	}
+
+	/**
+	 * @return int of the board's width and height
+	 */
+	int size() {
+		return size;
+	}
+
+	/**
+	 * Read every tile of the board into the given layers, indexed y * size + x.
+	 *
+	 * @param terrain  byte per tile to store the ordinal of its Tile.terrainTypes in
+	 * @param resource byte per tile to store its index into CivBoard.RESOURCES in
+	 * @throws IOException if a line is not a tile, or the file does not hold exactly
+	 *                     size * size tiles
+	 */
+	void readTiles(byte[] terrain, byte[] resource) throws IOException {
+		int tiles = size * size;
+		int read = 0;
+		int x = 0;
+		int y = 0;
+		while (true) {
+			skipBlankLines();
+			if (pos == limit)
+				break;
+			int start = pos;
+			int count = 1;
+			if (isDigit(in.get(pos))) {
+				count = readNumber();
+				if (count == 0)
+					throw error(start, "count must be at least 1");
+				if (skipSpaces() == 0)
+					throw error(pos, "expected a space after the count");
+			}
+			byte type = readTerrain();
+			if (skipSpaces() == 0)
+				throw error(pos, "expected a space after the terrain");
+			byte res = readResource();
+			endLine("tile");
+			if (count > tiles - read)
+				throw error(start, "more than the " + tiles + " tiles of a " + size + "x" + size + " board");
+			read += count;
+			while (count-- > 0) {
+				int index = y * size + x;
+				terrain[index] = type;
+				resource[index] = res;
+				if (++y == size) {
+					y = 0;
+					x++;
+				}
+			}
+		}
+		if (read < tiles)
+			throw error(pos, "only " + read + " of the " + tiles + " tiles of a " + size + "x" + size + " board");
+	}
+
+	private byte readTerrain() throws IOException {
+		int start = pos;
+		int end = wordEnd();
+		byte first = start < end ? in.get(start) : 0;
+		for (byte t = 0; t < TERRAIN_NAMES.length; t++) {
+			byte[] name = TERRAIN_NAMES[t];
+			if (name[0] == first && matches(start, end, name)) {
+				pos = end;
+				return t;
+			}
+		}
+		throw error(start, start == end ? "expected a terrain" : "unknown terrain " + text(start, end));
+	}
+
+	private byte readResource() throws IOException {
+		int start = pos;
+		int end = wordEnd();
+		if (end - start == 1) {
+			byte letter = in.get(start);
+			for (byte r = 0; r < RESOURCE_LETTERS.length; r++) {
+				if (RESOURCE_LETTERS[r] == letter) {
+					pos = end;
+					return r;
+				}
+			}
+		}
+		throw error(start, start == end ? "expected a resource" : "unknown resource " + text(start, end));
+	}
+
+	/**
+	 * Read an unsigned decimal number at pos.
+	 */
+	private int readNumber() throws IOException {
+		int start = pos;
+		long value = 0;
+		while (pos < limit && isDigit(in.get(pos))) {
+			value = value * 10 + in.get(pos++) - '0';
+			if (value > Integer.MAX_VALUE)
+				throw error(start, "number too large");
+		}
+		return (int) value;
+	}
+
+	/**
+	 * Skip what may follow the last value on a line, then the end of the line itself.
+	 */
+	private void endLine(String what) throws IOException {
+		skipSpaces();
+		if (!atLineEnd())
+			throw error(pos, "unexpected " + text(pos, wordEnd()) + " after the " + what);
+		nextLine();
+	}
+
+	/**
+	 * Move pos to the start of the next line that is not blank or only a comment, or
+	 * to the end of the file.
+	 */
+	private void skipBlankLines() {
+		while (pos < limit) {
+			skipSpaces();
+			if (!atLineEnd())
+				return;
+			nextLine();
+		}
+	}
+
+	private void nextLine() {
+		while (pos < limit && in.get(pos) != '\n')
+			pos++;
+		if (pos < limit) {
+			pos++;
+			line++;
+			lineStart = pos;
+		}
+	}
+
+	/**
+	 * @return int of spaces and tabs skipped
+	 */
+	private int skipSpaces() {
+		int start = pos;
+		while (pos < limit && (in.get(pos) == ' ' || in.get(pos) == '\t'))
+			pos++;
+		return pos - start;
+	}
+
+	private boolean atLineEnd() {
+		if (pos == limit)
+			return true;
+		byte b = in.get(pos);
+		return b == '\n' || b == '\r' && (pos + 1 == limit || in.get(pos + 1) == '\n')
+				|| b == '/' && pos + 1 < limit && in.get(pos + 1) == '/';
+	}
+
+	/**
+	 * @return index just past the word starting at pos
+	 */
+	private int wordEnd() {
+		int end = pos;
+		while (end < limit) {
+			byte b = in.get(end);
+			if (b == ' ' || b == '\t' || b == '\r' || b == '\n')
+				break;
+			end++;
+		}
+		return end;
+	}
+
+	private boolean matches(int start, int end, byte[] word) {
+		if (end - start != word.length)
+			return false;
+		for (int i = 0; i < word.length; i++) {
+			if (in.get(start + i) != word[i])
+				return false;
+		}
+		return true;
+	}
+
+	private static boolean isDigit(byte b) {
+		return b >= '0' && b <= '9';
+	}
+
+	/**
+	 * Copy part of the file out as text, for error messages only.
+	 */
+	private String text(int start, int end) {
+		byte[] bytes = new byte[Math.min(end - start, 40)];
+		for (int i = 0; i < bytes.length; i++)
+			bytes[i] = in.get(start + i);
+		return new String(bytes, StandardCharsets.US_ASCII);
+	}
+
+	private IOException error(int at, String problem) {
+		return new IOException(file.getFileName() + ":" + line + ":" + (at - lineStart + 1) + ": " + problem);
+	}
+
+}
@@ -0,0 +1,71 @@
+package models;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * MapTemplate.java
+ *
+ * The terrain and resource layers of a parsed map file, shared by every board built from
+ * that file in this process. Each map file is parsed once; a new game on the same map
+ * only allocates the layers that change during play. The layers of a template are never
+ * written after it is built, so boards sharing them copy them before changing a tile,
+ * see CivBoard.setTile().
+ *
+ * Templates are cached by the absolute path of their file, and a template is parsed
+ * again if the file's size or modification time changed since.
+ *
+ * @field CACHE every template parsed so far, by the absolute path of its file
+ * @field size int of the board's width and height
+ * @field terrain byte per tile holding the ordinal of its Tile.terrainTypes
+ * @field resource byte per tile holding an index into CivBoard.RESOURCES
+ * @field fileSize long of bytes in the file when it was parsed
+ * @field modified long of ms since the epoch the file was last modified when it was
+ *        parsed
+ */
+final class MapTemplate {
+
+	private static final ConcurrentHashMap<Path, MapTemplate> CACHE = new ConcurrentHashMap<Path, MapTemplate>();
+
+	final int size;
+	final byte[] terrain;
+	final byte[] resource;
+	private final long fileSize;
+	private final long modified;
+
+	private MapTemplate(int size, byte[] terrain, byte[] resource, long fileSize, long modified) {
+		this.size = size;
+		this.terrain = terrain;
+		this.resource = resource;
+		this.fileSize = fileSize;
+		this.modified = modified;
+	}
+
+	/**
+	 * The template of a map file, parsed now unless it is already cached.
+	 *
+	 * @param file Path of the map file
+	 * @return MapTemplate of the file
+	 * @throws IOException if the file cannot be read or is not a map, see MapReader
+	 */
+	static MapTemplate of(Path file) throws IOException {
+		Path key = file.toAbsolutePath().normalize();
+		BasicFileAttributes attrs = Files.readAttributes(key, BasicFileAttributes.class);
+		long modified = attrs.lastModifiedTime().toMillis();
+		MapTemplate template = CACHE.get(key);
+		if (template != null && template.fileSize == attrs.size() && template.modified == modified)
+			return template;
+		MapReader reader = new MapReader(file);
+		int tiles = reader.size() * reader.size();
+		byte[] terrain = new byte[tiles];
+		byte[] resource = new byte[tiles];
+		reader.readTiles(terrain, resource);
+		template = new MapTemplate(reader.size(), terrain, resource, attrs.size(), modified);
+		CACHE.put(key, template); // two threads parsing the same file at once both get a correct template
+		return template;
+	}
+
+}
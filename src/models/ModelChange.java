@@ -0,0 +1,112 @@
+package models;
+
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Set;
+
+import components.City;
+import components.Unit;
+
+/**
+ * ModelChange.java
+ *
+ * What changed in a game since listeners were last told, published in a
+ * GameEvent.ModelChanged. Changes made while a batch is open, see CivModel.startBatch(),
+ * collect in one ModelChange, so a computer turn of fifty moves reaches listeners as one
+ * delta.
+ *
+ * A tile is dirty when something drawn on it may look different: a unit arrived, left or
+ * was hurt, or a city was founded, destroyed or damaged on it. Units and cities that
+ * changed are listed as well, and their tiles counted as dirty.
+ *
+ * @field tiles board index of every dirty tile
+ * @field units every Unit that moved, was created, was hurt or healed, or died
+ * @field cities every City that was founded, damaged, grew or was destroyed
+ * @field players every Player whose count of units or cities may have changed
+ * @field fog whether some player revealed more of the board
+ * @field turn whether the current player changed
+ */
+public class ModelChange {
+
+	private final BitSet tiles = new BitSet();
+	private final Set<Unit> units = Collections.newSetFromMap(new IdentityHashMap<Unit, Boolean>());
+	private final Set<City> cities = Collections.newSetFromMap(new IdentityHashMap<City, Boolean>());
+	private final Set<Player> players = Collections.newSetFromMap(new IdentityHashMap<Player, Boolean>());
+	private boolean fog;
+	private boolean turn;
+
+	void addTile(int index) {
+		tiles.set(index);
+	}
+
+	void addUnit(Unit unit) {
+		units.add(unit);
+	}
+
+	void addCity(City city) {
+		cities.add(city);
+	}
+
+	void addPlayer(Player player) {
+		players.add(player);
+	}
+
+	void setFog() {
+		fog = true;
+	}
+
+	void setTurn() {
+		turn = true;
+	}
+
+	/**
+	 * Add everything another change holds to this one, for listeners that draw less
+	 * often than they are told about changes.
+	 *
+	 * @param other ModelChange to add
+	 */
+	public void merge(ModelChange other) {
+		tiles.or(other.tiles);
+		units.addAll(other.units);
+		cities.addAll(other.cities);
+		players.addAll(other.players);
+		fog |= other.fog;
+		turn |= other.turn;
+	}
+
+	/**
+	 * @return BitSet of the board index of every dirty tile, not to be changed
+	 */
+	public BitSet getTiles() {
+		return tiles;
+	}
+
+	public Set<Unit> getUnits() {
+		return Collections.unmodifiableSet(units);
+	}
+
+	public Set<City> getCities() {
+		return Collections.unmodifiableSet(cities);
+	}
+
+	public Set<Player> getPlayers() {
+		return Collections.unmodifiableSet(players);
+	}
+
+	public boolean fogChanged() {
+		return fog;
+	}
+
+	public boolean turnChanged() {
+		return turn;
+	}
+
+	/**
+	 * @return true if nothing changed
+	 */
+	public boolean isEmpty() {
+		return tiles.isEmpty() && units.isEmpty() && cities.isEmpty() && players.isEmpty() && !fog && !turn;
+	}
+
+}
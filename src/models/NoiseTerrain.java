@@ -0,0 +1,413 @@
+package models;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.IntStream;
+
+import components.Tile;
+
+/**
+ * NoiseTerrain.java
+ *
+ * Terrain for Map5 boards, drawn from two fields of multi-octave value noise: height
+ * decides between water, field, hill and mountain, and moisture turns some of the low
+ * ground into swamp. Every tile depends only on the seed and its own coordinates, so
+ * rows can be generated in any order and on any number of threads.
+ *
+ * Noise alone can wall a start off behind water or mountains, so connect() then floods
+ * the passable tiles reachable from the first start, and for any other start not among
+ * them, turns the fewest impassable tiles around it into passable ones to join it up:
+ * water into swamp and mountains into hills.
+ *
+ * Noise is lumpier on some seeds than others, so rather than fixed levels of height, the
+ * levels between water, field, hill and mountain are picked from a sample of the board to
+ * give each terrain about the same share of every board.
+ *
+ * @field WAVELENGTH most tiles between lattice points of the coarsest octave, which is
+ *        shorter on small boards so they still get more than a few features
+ * @field HEIGHT_OCTAVES octaves of height noise, each with half the wavelength and half
+ *        the weight of the one before
+ * @field MOISTURE_OCTAVES octaves of moisture noise
+ * @field PARALLEL_ROWS boards with at least this many rows are generated in parallel
+ */
+final class NoiseTerrain {
+
+	private static final int WAVELENGTH = 32;
+	private static final int HEIGHT_OCTAVES = 4;
+	private static final int MOISTURE_OCTAVES = 2;
+	private static final int PARALLEL_ROWS = 512;
+
+	private static final int SAMPLES = 256; // per row and column when estimating levels
+
+	// share of the board below or above each level of height, and of moisture
+	private static final double WATER_SHARE = 0.20;
+	private static final double HILL_SHARE = 0.28;
+	private static final double MOUNTAIN_SHARE = 0.08;
+	private static final double SWAMP_SHARE = 0.30;
+
+	private static final byte FIELD = (byte) Tile.terrainTypes.FIELD.ordinal();
+	private static final byte HILL = (byte) Tile.terrainTypes.HILL.ordinal();
+	private static final byte SWAMP = (byte) Tile.terrainTypes.SWAMP.ordinal();
+	private static final byte WATER = (byte) Tile.terrainTypes.WATER.ordinal();
+	private static final byte MOUNTAIN = (byte) Tile.terrainTypes.MOUNTAIN.ordinal();
+
+	// indexes into CivBoard.RESOURCES
+	private static final byte WHEAT = 1;
+	private static final byte HORSE = 2;
+	private static final byte IRON = 3;
+
+	private NoiseTerrain() {
+	}
+
+	/**
+	 * Fill the terrain and resource layers of a size x size board from the seed. The
+	 * border is left as water, as on Map4.
+	 *
+	 * @param terrain  byte per tile to store the ordinal of its Tile.terrainTypes in
+	 * @param resource byte per tile to store its index into CivBoard.RESOURCES in
+	 * @param size     int of the board's width and height
+	 * @param seed     long seeding the noise
+	 */
+	static void generate(byte[] terrain, byte[] resource, int size, long seed) {
+		Octave[] height = octaves(size, seed, 1, HEIGHT_OCTAVES);
+		Octave[] moisture = octaves(size, seed, 2, MOISTURE_OCTAVES);
+		double[] heights = sampleLevels(height, size, WATER_SHARE, 1 - HILL_SHARE - MOUNTAIN_SHARE, 1 - MOUNTAIN_SHARE);
+		double waterLevel = heights[0];
+		double hillLevel = heights[1];
+		double mountainLevel = heights[2];
+		double swampLevel = sampleLevels(moisture, size, 1 - SWAMP_SHARE)[0];
+		IntStream rows = IntStream.range(0, size);
+		if (size >= PARALLEL_ROWS)
+			rows = rows.parallel();
+		rows.forEach(y -> {
+			double[] heightRow = sampleRow(height, y, size);
+			double[] moistureRow = sampleRow(moisture, y, size);
+			for (int x = 0; x < size; x++) {
+				int index = y * size + x;
+				if (x == 0 || y == 0 || x == size - 1 || y == size - 1) {
+					terrain[index] = WATER;
+					continue;
+				}
+				double h = heightRow[x];
+				double roll = unit(hash(seed, 3, x, y));
+				byte type;
+				byte res = 0;
+				if (h < waterLevel) {
+					type = WATER;
+				} else if (h >= mountainLevel) {
+					type = MOUNTAIN;
+				} else if (h >= hillLevel) {
+					type = HILL;
+					if (roll < 0.06)
+						res = IRON;
+				} else if (moistureRow[x] >= swampLevel) {
+					type = SWAMP;
+					if (roll < 0.06)
+						res = HORSE;
+				} else {
+					type = FIELD;
+					if (roll < 0.04)
+						res = WHEAT;
+				}
+				terrain[index] = type;
+				resource[index] = res;
+			}
+		});
+	}
+
+	/**
+	 * Make sure every start can reach the first one over passable tiles, moving as
+	 * units do, to any of the eight neighbouring tiles. Starts that cannot are joined
+	 * up by the cheapest bridge of changed tiles, see bridge().
+	 *
+	 * @param terrain byte per tile holding the ordinal of its Tile.terrainTypes, with
+	 *                water all along the border as generate() leaves it
+	 * @param size    int of the board's width and height
+	 * @param starts  List of int[2] of the (x,y) of each start, all passable and
+	 *                off the border
+	 * @return int of tiles changed to connect the starts, 0 if they already were
+	 */
+	static int connect(byte[] terrain, int size, List<int[]> starts) {
+		for (int[] start : starts) {
+			if (start[0] < 1 || start[1] < 1 || start[0] >= size - 1 || start[1] >= size - 1)
+				throw new IllegalArgumentException("start on the border: " + start[0] + "," + start[1]);
+		}
+		boolean[] reached = new boolean[terrain.length];
+		flood(terrain, reached, size, starts.get(0)[1] * size + starts.get(0)[0]);
+		int changed = 0;
+		Search search = null;
+		for (int[] start : starts) {
+			int index = start[1] * size + start[0];
+			if (!reached[index]) {
+				if (search == null)
+					search = new Search(terrain.length);
+				changed += bridge(terrain, reached, size, index, search);
+				flood(terrain, reached, size, index);
+			}
+		}
+		return changed;
+	}
+
+	/**
+	 * Mark every passable tile that can be reached from the given one as reached, by a
+	 * depth first search that stops at tiles already reached. The border is water, so
+	 * every tile reached is inside it and has all eight neighbours on the board.
+	 */
+	private static void flood(byte[] terrain, boolean[] reached, int size, int from) {
+		int[] around = { -size - 1, -size, -size + 1, -1, 1, size - 1, size, size + 1 };
+		int[] stack = new int[64];
+		int top = 0;
+		reached[from] = true;
+		stack[top++] = from;
+		while (top > 0) {
+			int index = stack[--top];
+			for (int offset : around) {
+				int next = index + offset;
+				if (!reached[next] && passable(terrain[next])) {
+					reached[next] = true;
+					stack = push(stack, top++, next);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Connect a start to the tiles already reached, by searching out from the start
+	 * for the path that crosses the fewest impassable tiles (a breadth first search,
+	 * one level per impassable tile crossed), then making those tiles passable. The
+	 * search only spreads as far as the nearest reached tile, so a start walled in
+	 * close by is repaired close by.
+	 *
+	 * @return int of tiles changed
+	 */
+	private static int bridge(byte[] terrain, boolean[] reached, int size, int from, Search search) {
+		int[] cost = search.cost;
+		int[] previous = search.previous;
+		Arrays.fill(cost, Integer.MAX_VALUE);
+		// tiles reached at the current cost, and those reached by crossing one more
+		int[] level = new int[64];
+		int levelSize = 0;
+		int[] next = new int[64];
+		cost[from] = 0;
+		previous[from] = -1;
+		level[levelSize++] = from;
+		int end = -1;
+		for (int current = 0; levelSize > 0 && end < 0; current++) {
+			int nextSize = 0;
+			for (int q = 0; q < levelSize && end < 0; q++) {
+				int index = level[q];
+				if (cost[index] != current) // since reached more cheaply
+					continue;
+				if (reached[index]) {
+					end = index;
+					break;
+				}
+				int x = index % size;
+				int y = index / size;
+				for (int dy = -1; dy <= 1; dy++) {
+					for (int dx = -1; dx <= 1; dx++) {
+						int nx = x + dx;
+						int ny = y + dy;
+						// the border stays water, so every board keeps its coastline
+						if (nx < 1 || ny < 1 || nx >= size - 1 || ny >= size - 1 || (dx == 0 && dy == 0))
+							continue;
+						int neighbour = ny * size + nx;
+						int step = passable(terrain[neighbour]) ? 0 : 1;
+						if (current + step < cost[neighbour]) {
+							cost[neighbour] = current + step;
+							previous[neighbour] = index;
+							if (step == 0)
+								level = push(level, levelSize++, neighbour);
+							else
+								next = push(next, nextSize++, neighbour);
+						}
+					}
+				}
+			}
+			int[] swap = level;
+			level = next;
+			next = swap;
+			levelSize = nextSize;
+		}
+		int changed = 0;
+		for (int index = end; index != -1; index = previous[index]) {
+			if (!passable(terrain[index])) {
+				terrain[index] = terrain[index] == WATER ? SWAMP : HILL;
+				changed++;
+			}
+		}
+		return changed;
+	}
+
+	/**
+	 * Store value at position n of a growing array.
+	 *
+	 * @return the array, or a larger copy of it if it was full
+	 */
+	private static int[] push(int[] array, int n, int value) {
+		if (n == array.length)
+			array = Arrays.copyOf(array, n * 2);
+		array[n] = value;
+		return array;
+	}
+
+	private static boolean passable(byte type) {
+		return type == FIELD || type == HILL || type == SWAMP;
+	}
+
+	/**
+	 * Estimate the values of a noise field that the given shares of the board fall
+	 * below, from a grid of at most SAMPLES x SAMPLES tiles.
+	 *
+	 * @return double per share, the level that share of the board falls below
+	 */
+	private static double[] sampleLevels(Octave[] field, int size, double... shares) {
+		int stride = Math.max(1, size / SAMPLES);
+		int across = (size + stride - 1) / stride;
+		double[] values = new double[across * across];
+		for (int i = 0; i < values.length; i++)
+			values[i] = sample(field, (i % across) * stride, (i / across) * stride);
+		Arrays.sort(values);
+		double[] levels = new double[shares.length];
+		for (int i = 0; i < shares.length; i++)
+			levels[i] = values[Math.min(values.length - 1, (int) (shares[i] * values.length))];
+		return levels;
+	}
+
+	/**
+	 * The octaves of one noise field, coarsest first.
+	 */
+	private static Octave[] octaves(int size, long seed, int field, int count) {
+		Octave[] octaves = new Octave[count];
+		int wavelength = Math.max(4, Math.min(WAVELENGTH, size / 3));
+		double weight = 1;
+		for (int i = 0; i < count; i++) {
+			octaves[i] = new Octave(size, seed, field * 16 + i, Math.max(wavelength, 2), weight);
+			wavelength /= 2;
+			weight /= 2;
+		}
+		return octaves;
+	}
+
+	/**
+	 * Noise of a field at x,y, between 0 and 1.
+	 */
+	private static double sample(Octave[] octaves, int x, int y) {
+		double sum = 0;
+		double weights = 0;
+		for (Octave o : octaves) {
+			sum += o.sample(x, y) * o.weight;
+			weights += o.weight;
+		}
+		return sum / weights;
+	}
+
+	/**
+	 * Noise of a field along row y, between 0 and 1.
+	 */
+	private static double[] sampleRow(Octave[] octaves, int y, int size) {
+		double[] row = new double[size];
+		double weights = 0;
+		for (Octave o : octaves) {
+			o.addRow(row, y);
+			weights += o.weight;
+		}
+		for (int x = 0; x < size; x++)
+			row[x] /= weights;
+		return row;
+	}
+
+	private static long hash(long seed, int salt, int x, int y) {
+		long h = seed ^ ((long) salt << 56);
+		h = (h ^ x) * 0x9E3779B97F4A7C15L;
+		h = (h ^ y) * 0xBF58476D1CE4E5B9L;
+		h = (h ^ (h >>> 31)) * 0x94D049BB133111EBL;
+		return h ^ (h >>> 29);
+	}
+
+	private static double unit(long hash) {
+		return (hash >>> 11) * 0x1.0p-53;
+	}
+
+	/**
+	 * One octave of value noise: random values on a square lattice, smoothly
+	 * interpolated in between. The lattice covers the board and is built up front, so
+	 * sampling it reads four values and hashes nothing.
+	 *
+	 * @field wavelength tiles between lattice points
+	 * @field weight of this octave in the sum of the field's octaves
+	 * @field points lattice points across
+	 * @field lattice float per lattice point, row by row
+	 */
+	private static final class Octave {
+		final int wavelength;
+		final double weight;
+		final int points;
+		final float[] lattice;
+
+		Octave(int size, long seed, int salt, int wavelength, double weight) {
+			this.wavelength = wavelength;
+			this.weight = weight;
+			this.points = size / wavelength + 2;
+			this.lattice = new float[points * points];
+			for (int i = 0; i < lattice.length; i++)
+				lattice[i] = (float) unit(hash(seed, salt, i % points, i / points));
+		}
+
+		double sample(int x, int y) {
+			int cx = x / wavelength;
+			int cy = y / wavelength;
+			double fx = fade((x % wavelength) / (double) wavelength);
+			double fy = fade((y % wavelength) / (double) wavelength);
+			int i = cy * points + cx;
+			double top = lattice[i] + (lattice[i + 1] - lattice[i]) * fx;
+			double bottom = lattice[i + points] + (lattice[i + points + 1] - lattice[i + points]) * fx;
+			return top + (bottom - top) * fy;
+		}
+
+		/**
+		 * Add this octave's noise along row y, times its weight, to row. Interpolates
+		 * down each lattice column once, then across the row.
+		 */
+		void addRow(double[] row, int y) {
+			int cy = y / wavelength;
+			double fy = fade((y % wavelength) / (double) wavelength);
+			double[] column = new double[points];
+			for (int cx = 0; cx < points; cx++) {
+				float top = lattice[cy * points + cx];
+				column[cx] = top + (lattice[(cy + 1) * points + cx] - top) * fy;
+			}
+			double[] fx = new double[wavelength];
+			for (int i = 0; i < wavelength; i++)
+				fx[i] = fade(i / (double) wavelength) * weight;
+			for (int x0 = 0, cx = 0; x0 < row.length; x0 += wavelength, cx++) {
+				double left = column[cx] * weight;
+				double span = column[cx + 1] - column[cx];
+				int end = Math.min(wavelength, row.length - x0);
+				for (int i = 0; i < end; i++)
+					row[x0 + i] += left + span * fx[i];
+			}
+		}
+
+		private static double fade(double t) {
+			return t * t * (3 - 2 * t);
+		}
+	}
+
+	/**
+	 * Work space of bridge(), shared by the bridges of one board.
+	 *
+	 * @field cost int per tile of impassable tiles crossed to reach it
+	 * @field previous int per tile of the tile it was reached from, -1 for the start
+	 */
+	private static final class Search {
+		final int[] cost;
+		final int[] previous;
+
+		Search(int tiles) {
+			cost = new int[tiles];
+			previous = new int[tiles];
+		}
+	}
+
+}
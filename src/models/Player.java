@@ -1,5 +1,6 @@
 package models;
 
+import java.io.IOException;
 import java.io.Serializable;
 import java.util.ArrayList;
 
@@ -16,6 +17,8 @@ import components.Unit;
  *  @field isHuman is a boolean indicating whether this Player is a human player or CPU player
  *  @field ID is a String that gives this Player's "name" for displaying in the view and specifying
  *  		in the controller. 
+ *  @field turnEpoch is an int counting the turns this Player has started, which its Units
+ *  		catch up with the next time they are used, see Unit.upkeep()
  *  
  * @author Ryan Smith, Connie Sun
  *
@@ -24,6 +27,7 @@ public class Player implements Serializable {
 	private ArrayList<Unit> units;
 	private ArrayList<City> cities;
 	private boolean isHuman;
+	private transient int turnEpoch;
 
 	String ID;
 	/**
@@ -53,6 +57,7 @@ public class Player implements Serializable {
 	 */
 	public void addUnit(Unit unit) {
 		units.add(unit);
+		unit.setListed(true);
 	}
 	/**
 	 * getUnits() returns the collection of Units that belong to this Player for the controller
@@ -81,6 +86,22 @@ public class Player implements Serializable {
 	 */
 	public void removeUnit(Unit unit) {
 		this.units.remove(unit);
+		unit.setListed(false);
+	}
+	/**
+	 * Start another turn of this Player: every Unit it owns has its movement reset and
+	 * heals once, which each Unit catches up with the next time it is used rather than
+	 * all of them now.
+	 */
+	public void startTurn() {
+		turnEpoch++;
+	}
+	/**
+	 * Gives Units the number of turns this Player has started, to catch up with
+	 * @return int counting this Player's turns
+	 */
+	public int getTurnEpoch() {
+		return turnEpoch;
 	}
 	/**
 	 * Remove a City from this Player's City collection (for use when City dies)
@@ -96,4 +117,23 @@ public class Player implements Serializable {
 	public String getID() {
 		return this.ID;
 	}
+	/**
+	 * Write this Player's own fields to a save. Units and cities are saved by the model.
+	 * @param out SaveWriter to write to
+	 * @throws IOException if writing fails
+	 */
+	public void write(SaveWriter out) throws IOException {
+		out.putBoolean(isHuman);
+		out.putString(ID);
+	}
+	/**
+	 * Read a Player written by write(), with no units or cities yet.
+	 * @param in SaveReader to read from
+	 * @return the Player read
+	 * @throws IOException if reading fails
+	 */
+	public static Player read(SaveReader in) throws IOException {
+		int isHuman = in.getBoolean() ? 1 : 0;
+		return new Player(isHuman, in.getString());
+	}
 }
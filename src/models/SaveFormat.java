@@ -0,0 +1,104 @@
+package models;
+
+import java.io.IOException;
+import java.nio.file.FileSystemException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+
+/**
+ * SaveFormat.java
+ *
+ * Constants of the binary save file written by CivModel.done(). All numbers are big
+ * endian. A save is a fixed header followed by tagged sections in a fixed order:
+ *
+ * 	header  magic "CIVS", short version, short flags, int map, int size, int round,
+ * 	        int players still in the game, byte single player, long seed,
+ * 	        long time saved (ms since the epoch), int current player
+ * 	PLYR    every player the game refers to: those still in the game in turn order
+ * 	        starting from player 1, then knocked out ones. Each is a byte human flag and
+ * 	        its ID. Followed by the starting coordinates.
+ * 	TERR    one byte per tile: terrain type in bits 0-2, resource in bits 3-4 and the
+ * 	        city flags in bits 5-6
+ * 	OWNR    the owner layer, either RAW (size * size ints) or as RUNS (int count,
+ * 	        then int length and int owner of each run of equal owners)
+ * 	CITY    every city, the ones the owner layer refers to first, then each player's
+ * 	        list of cities as indices into them
+ * 	FOG     each player's bitset of revealed tiles
+ * 	UNIT    every unit, in each player's unit order, and whether it stands on the board
+ * 	END     marks a complete save
+ *
+ * If the COMPRESSED flag is set, everything after the header is one deflate stream, so
+ * the header can be read without inflating the save.
+ *
+ * Players, cities and units refer to each other by their position in these tables.
+ */
+public final class SaveFormat {
+
+	public static final int MAGIC = 0x43495653; // "CIVS"
+	public static final int VERSION = 1;
+
+	public static final int PLAYERS = 0x504C5952; // "PLYR"
+	public static final int TERRAIN = 0x54455252; // "TERR"
+	public static final int OWNERS = 0x4F574E52; // "OWNR"
+	public static final int CITIES = 0x43495459; // "CITY"
+	public static final int FOG = 0x464F4720; // "FOG "
+	public static final int UNITS = 0x554E4954; // "UNIT"
+	public static final int END = 0x454E4420; // "END "
+
+	/** header flag: everything after the header is deflated */
+	public static final int COMPRESSED = 1;
+
+	/** encodings of the owner layer */
+	public static final int RAW = 0;
+	public static final int RUNS = 1;
+
+	private SaveFormat() {
+	}
+
+	/**
+	 * Read a section tag and check it is the one expected next.
+	 *
+	 * @param in       SaveReader positioned at a section
+	 * @param expected tag of the section that should come next
+	 * @throws IOException if another tag is found
+	 */
+	static void expect(SaveReader in, int expected) throws IOException {
+		long at = in.position();
+		int tag = in.getInt();
+		if (tag != expected)
+			throw new IOException("corrupt save: expected section " + name(expected) + " at offset " + at
+					+ " but found " + name(tag));
+	}
+
+	/**
+	 * Move a save written beside its file over that file, so the file always holds a
+	 * complete save. Windows refuses to replace a file that is still mapped. A board
+	 * loaded from the file drops its mapping once every tile is paged in, which
+	 * writing a game always does first, but the mapping itself lasts until it is
+	 * garbage collected (see SaveReader.map()). If the file cannot be replaced, the
+	 * new save is left beside it and the error says where.
+	 *
+	 * @param temp Path of the new save
+	 * @param file Path of the save to replace
+	 * @throws IOException if the save cannot be replaced
+	 */
+	static void replace(Path temp, Path file) throws IOException {
+		try {
+			Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		} catch (FileSystemException e) {
+			throw new IOException("could not replace " + file + ", which may still be in use by a game loaded from it;"
+					+ " the new save was left at " + temp, e);
+		}
+	}
+
+	/**
+	 * Four letter name of a tag, for error messages.
+	 */
+	private static String name(int tag) {
+		char[] c = { (char) (tag >>> 24 & 0xFF), (char) (tag >>> 16 & 0xFF), (char) (tag >>> 8 & 0xFF),
+				(char) (tag & 0xFF) };
+		return new String(c).trim();
+	}
+
+}
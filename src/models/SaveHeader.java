@@ -0,0 +1,108 @@
+package models;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * SaveHeader.java
+ *
+ * The fixed header at the start of every binary save, see SaveFormat. It is never
+ * compressed and is a few dozen bytes long, so a save can be described in a menu from its
+ * header alone, without loading the board behind it.
+ *
+ * @field SIZE bytes taken by a header in a save
+ * @field flags short of SaveFormat flags the rest of the save was written with
+ * @field map int of the map played on
+ * @field size int of the board's width and height
+ * @field round int of the round the game was in
+ * @field players int of players still in the game
+ * @field singlePlayer boolean of whether one human plays against the computer
+ * @field seed long the game was generated from
+ * @field savedAt long of ms since the epoch when the game was saved
+ * @field current int of the player whose turn it was, as a position in the save's
+ *        player table
+ */
+public class SaveHeader {
+
+	public static final int SIZE = 4 + 2 + 2 + 4 + 4 + 4 + 4 + 1 + 8 + 8 + 4;
+
+	public final int flags;
+	public final int map;
+	public final int size;
+	public final int round;
+	public final int players;
+	public final boolean singlePlayer;
+	public final long seed;
+	public final long savedAt;
+	public final int current;
+
+	SaveHeader(int flags, int map, int size, int round, int players, boolean singlePlayer, long seed,
+			long savedAt, int current) {
+		this.flags = flags;
+		this.map = map;
+		this.size = size;
+		this.round = round;
+		this.players = players;
+		this.singlePlayer = singlePlayer;
+		this.seed = seed;
+		this.savedAt = savedAt;
+		this.current = current;
+	}
+
+	/**
+	 * Write the header at the start of a save.
+	 *
+	 * @param out SaveWriter at the start of the save
+	 * @throws IOException if writing fails
+	 */
+	void write(SaveWriter out) throws IOException {
+		out.putInt(SaveFormat.MAGIC);
+		out.putShort(SaveFormat.VERSION);
+		out.putShort(flags);
+		out.putInt(map);
+		out.putInt(size);
+		out.putInt(round);
+		out.putInt(players);
+		out.putBoolean(singlePlayer);
+		out.putLong(seed);
+		out.putLong(savedAt);
+		out.putInt(current);
+	}
+
+	/**
+	 * Read the header at the start of a save, checking that it is one this version of
+	 * the game can load.
+	 *
+	 * @param in SaveReader at the start of the save
+	 * @return the SaveHeader read
+	 * @throws IOException if this is not a binary save of a supported version
+	 */
+	public static SaveHeader read(SaveReader in) throws IOException {
+		if (in.getInt() != SaveFormat.MAGIC)
+			throw new IOException("not a save file");
+		int version = in.getShort();
+		if (version != SaveFormat.VERSION)
+			throw new IOException("unsupported save version " + version);
+		int flags = in.getShort();
+		if ((flags & ~SaveFormat.COMPRESSED) != 0)
+			throw new IOException("unsupported save flags " + flags);
+		return new SaveHeader(flags, in.getInt(), in.getInt(), in.getInt(), in.getInt(), in.getBoolean(),
+				in.getLong(), in.getLong(), in.getInt());
+	}
+
+	/**
+	 * Read just the header of a save file.
+	 *
+	 * @param file Path of the save
+	 * @return the SaveHeader of the save
+	 * @throws IOException if the file cannot be read or is not a binary save
+	 */
+	public static SaveHeader read(Path file) throws IOException {
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+			return read(new SaveReader(channel, SIZE));
+		}
+	}
+
+}
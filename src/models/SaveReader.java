@@ -0,0 +1,274 @@
+package models;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+/**
+ * SaveReader.java
+ *
+ * Reads back what a SaveWriter wrote, from a channel through one reused direct buffer.
+ * Large byte arrays are read from the channel straight into the array once the buffer is
+ * drained. After decompress() the rest of the input is inflated into the buffer as it is
+ * needed.
+ *
+ * @field BUFFER_SIZE bytes read from the channel at a time
+ * @field channel ReadableByteChannel being read from
+ * @field buffer direct buffer holding bytes read but not yet consumed
+ * @field consumed bytes consumed before the start of the buffer, counted after
+ *        decompression
+ * @field inflater Inflater decompressing the input, null until decompress() is called
+ * @field compressed direct buffer of compressed bytes read but not yet inflated
+ */
+public class SaveReader {
+
+	private static final int BUFFER_SIZE = 1 << 16;
+
+	private final ReadableByteChannel channel;
+	private final ByteBuffer buffer;
+	private long consumed;
+	private Inflater inflater;
+	private ByteBuffer compressed;
+
+	/**
+	 * Create a reader over the given channel, which is left open.
+	 *
+	 * @param channel ReadableByteChannel to read from
+	 */
+	public SaveReader(ReadableByteChannel channel) {
+		this(channel, BUFFER_SIZE);
+	}
+
+	/**
+	 * Create a reader over the given channel that reads at most bufferSize bytes at a
+	 * time, for reading only the start of a file.
+	 *
+	 * @param channel    ReadableByteChannel to read from
+	 * @param bufferSize int of bytes to buffer, at least as many as the largest
+	 *                   number read
+	 */
+	public SaveReader(ReadableByteChannel channel, int bufferSize) {
+		this.channel = channel;
+		this.buffer = ByteBuffer.allocateDirect(bufferSize);
+		buffer.flip(); // start out empty
+	}
+
+	public int getByte() throws IOException {
+		require(1);
+		return buffer.get();
+	}
+
+	public boolean getBoolean() throws IOException {
+		return getByte() != 0;
+	}
+
+	public int getShort() throws IOException {
+		require(2);
+		return buffer.getShort();
+	}
+
+	public int getInt() throws IOException {
+		require(4);
+		return buffer.getInt();
+	}
+
+	public long getLong() throws IOException {
+		require(8);
+		return buffer.getLong();
+	}
+
+	public double getDouble() throws IOException {
+		require(8);
+		return buffer.getDouble();
+	}
+
+	/**
+	 * Read a string written by SaveWriter.putString().
+	 *
+	 * @return the String read
+	 * @throws IOException if the length is negative or the input ends early
+	 */
+	public String getString() throws IOException {
+		int length = getInt();
+		if (length < 0)
+			throw new IOException("corrupt save: string of length " + length);
+		byte[] bytes = new byte[length];
+		getBytes(bytes);
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+
+	/**
+	 * Fill the array with the next bytes of the input.
+	 *
+	 * @param bytes byte[] to fill
+	 */
+	public void getBytes(byte[] bytes) throws IOException {
+		int done = Math.min(buffer.remaining(), bytes.length);
+		buffer.get(bytes, 0, done);
+		if (done == bytes.length)
+			return;
+		consumed += buffer.limit();
+		buffer.clear().flip();
+		ByteBuffer wrapped = ByteBuffer.wrap(bytes, done, bytes.length - done);
+		while (wrapped.hasRemaining()) {
+			int n = fill(wrapped);
+			if (n < 0)
+				throw new EOFException("save ended early");
+			consumed += n;
+		}
+	}
+
+	/**
+	 * Fill the array with the next ints of the input.
+	 *
+	 * @param ints int[] to fill
+	 */
+	public void getInts(int[] ints) throws IOException {
+		int done = 0;
+		while (done < ints.length) {
+			require(4);
+			int n = Math.min(buffer.remaining() / 4, ints.length - done);
+			buffer.asIntBuffer().get(ints, done, n);
+			buffer.position(buffer.position() + n * 4);
+			done += n;
+		}
+	}
+
+	/**
+	 * Fill the array with the next longs of the input.
+	 *
+	 * @param longs long[] to fill
+	 */
+	public void getLongs(long[] longs) throws IOException {
+		int done = 0;
+		while (done < longs.length) {
+			require(8);
+			int n = Math.min(buffer.remaining() / 8, longs.length - done);
+			buffer.asLongBuffer().get(longs, done, n);
+			buffer.position(buffer.position() + n * 8);
+			done += n;
+		}
+	}
+
+	/**
+	 * Read a count written before a list of things, checking it is sensible.
+	 *
+	 * @param max largest count that can be valid here
+	 * @return the count
+	 * @throws IOException if the count is negative or larger than max
+	 */
+	public int getCount(int max) throws IOException {
+		int count = getInt();
+		if (count < 0 || count > max)
+			throw new IOException("corrupt save: count " + count + " at offset " + (position() - 4));
+		return count;
+	}
+
+	/**
+	 * Number of bytes consumed so far.
+	 *
+	 * @return long offset of the next byte to be read
+	 */
+	public long position() {
+		return consumed + buffer.position();
+	}
+
+	/**
+	 * Make sure at least n bytes are buffered, reading more from the channel if needed.
+	 *
+	 * @throws EOFException if the input ends first
+	 */
+	private void require(int n) throws IOException {
+		if (buffer.remaining() >= n)
+			return;
+		consumed += buffer.position();
+		buffer.compact();
+		while (buffer.position() < n) {
+			if (fill(buffer) < 0) {
+				buffer.flip();
+				throw new EOFException("save ended early");
+			}
+		}
+		buffer.flip();
+	}
+
+	/**
+	 * Map the next length bytes of the file being read into memory instead of reading
+	 * them, and skip past them. Only possible while reading a file uncompressed; the
+	 * mapping stays valid once the file is closed.
+	 *
+	 * Java unmaps the buffer only once it is garbage collected, and until then Windows
+	 * refuses to delete the file or move another over it. Whoever keeps the buffer must
+	 * let go of it before the file is replaced, as CivBoard.pageInAll() does, and
+	 * replace it through SaveFormat.replace().
+	 *
+	 * @param length int of bytes to map
+	 * @return MappedByteBuffer of the bytes, or null if they cannot be mapped and
+	 *         have to be read
+	 * @throws EOFException if the file ends first
+	 */
+	public MappedByteBuffer map(int length) throws IOException {
+		if (inflater != null || !(channel instanceof FileChannel))
+			return null;
+		FileChannel file = (FileChannel) channel;
+		long offset = file.position() - buffer.remaining(); // of the next byte not consumed
+		if (offset + length > file.size())
+			throw new EOFException("save ended early");
+		MappedByteBuffer mapped = file.map(FileChannel.MapMode.READ_ONLY, offset, length);
+		consumed = position() + length;
+		buffer.clear().flip();
+		file.position(offset + length);
+		return mapped;
+	}
+
+	/**
+	 * Decompress the rest of the input, which a SaveWriter compressed after
+	 * compress().
+	 */
+	public void decompress() {
+		inflater = new Inflater();
+		compressed = ByteBuffer.allocateDirect(BUFFER_SIZE);
+		consumed += buffer.position();
+		compressed.put(buffer); // read ahead, but still compressed
+		compressed.flip();
+		inflater.setInput(compressed);
+		buffer.clear().flip();
+	}
+
+	/**
+	 * Put more of the input into dst.
+	 *
+	 * @return number of bytes put, -1 at the end of the input
+	 */
+	private int fill(ByteBuffer dst) throws IOException {
+		if (inflater == null)
+			return channel.read(dst);
+		try {
+			while (true) {
+				int n = inflater.inflate(dst);
+				if (n > 0)
+					return n;
+				if (inflater.finished())
+					return -1;
+				if (inflater.needsDictionary())
+					throw new IOException("corrupt save: compressed data needs a dictionary");
+				if (inflater.needsInput()) {
+					compressed.clear();
+					if (channel.read(compressed) < 0)
+						return -1;
+					compressed.flip();
+					inflater.setInput(compressed);
+				}
+			}
+		} catch (DataFormatException e) {
+			throw new IOException("corrupt save: " + e.getMessage(), e);
+		}
+	}
+
+}
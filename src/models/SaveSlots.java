@@ -0,0 +1,221 @@
+package models;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * SaveSlots.java
+ *
+ * Named saves kept side by side in one directory, one file per slot, plus an index
+ * holding the header of every slot. list() describes every slot from the index alone,
+ * so a load menu can show dozens of saves without opening them; only the slot chosen is
+ * loaded in full.
+ *
+ * The index is a cache: each entry remembers the size and modification time of its save,
+ * and list() reads the header of any save that was added, changed or removed behind its
+ * back and then rewrites the index. Deleting the index loses nothing.
+ *
+ * The index is laid out, big endian, as int "CIVI", short version, int count, then for
+ * each slot its name, long file size, long modification time in ms and the save's
+ * header as it appears in the save.
+ *
+ * @field DIRECTORY directory the game keeps its save slots in
+ * @field EXTENSION of every save slot's file
+ * @field INDEX file name of the index within the directory
+ * @field dir Path of the directory
+ */
+public class SaveSlots {
+
+	public static final String DIRECTORY = "saves";
+	public static final String EXTENSION = ".civ";
+	public static final String INDEX = "index.dat";
+	private static final int INDEX_MAGIC = 0x43495649; // "CIVI"
+	private static final int INDEX_VERSION = 1;
+	private static final int MAX_NAME = 64;
+
+	private final Path dir;
+
+	/**
+	 * Save slots kept in the given directory, which is created by the first save.
+	 *
+	 * @param dir Path of the directory
+	 */
+	public SaveSlots(Path dir) {
+		this.dir = dir;
+	}
+
+	/**
+	 * Describe every slot, newest save first, without loading any of them.
+	 *
+	 * @return List of Slot
+	 * @throws IOException if the directory cannot be listed
+	 */
+	public List<Slot> list() throws IOException {
+		if (!Files.isDirectory(dir))
+			return new ArrayList<Slot>();
+		Map<String, Slot> indexed = readIndex();
+		List<Slot> slots = new ArrayList<Slot>();
+		boolean changed = false;
+		try (DirectoryStream<Path> files = Files.newDirectoryStream(dir, "*" + EXTENSION)) {
+			for (Path file : files) {
+				String fileName = file.getFileName().toString();
+				String name = fileName.substring(0, fileName.length() - EXTENSION.length());
+				BasicFileAttributes attrs = Files.readAttributes(file, BasicFileAttributes.class);
+				Slot slot = indexed.remove(name);
+				if (slot == null || slot.fileSize != attrs.size()
+						|| slot.modified != attrs.lastModifiedTime().toMillis()) {
+					changed = true;
+					try {
+						slot = new Slot(name, attrs.size(), attrs.lastModifiedTime().toMillis(),
+								SaveHeader.read(file));
+					} catch (IOException e) { // not a save this version can load
+						continue;
+					}
+				}
+				slots.add(slot);
+			}
+		}
+		if (changed || !indexed.isEmpty())
+			writeIndex(slots);
+		slots.sort((a, b) -> Long.compare(b.header.savedAt, a.header.savedAt));
+		return slots;
+	}
+
+	/**
+	 * Save the game to the named slot, replacing what the slot held. The save is
+	 * written next to the slot and then moved over it.
+	 *
+	 * @param name  String naming the slot, see slotName()
+	 * @param model CivModel of the game to save
+	 * @return Slot describing the new save
+	 * @throws IOException if the game cannot be saved
+	 */
+	public Slot save(String name, CivModel model) throws IOException {
+		if (!name.equals(slotName(name)))
+			throw new IllegalArgumentException("not a slot name: " + name);
+		Files.createDirectories(dir);
+		Path file = dir.resolve(name + EXTENSION);
+		Path temp = dir.resolve(name + EXTENSION + ".tmp");
+		try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+				StandardOpenOption.TRUNCATE_EXISTING)) {
+			model.writeGame(channel, System.currentTimeMillis());
+		}
+		SaveFormat.replace(temp, file);
+		List<Slot> slots = list(); // picks up the new save and rewrites the index
+		for (Slot s : slots) {
+			if (s.name.equals(name))
+				return s;
+		}
+		throw new IOException("save to slot " + name + " could not be read back");
+	}
+
+	/**
+	 * Load the game saved in a slot.
+	 *
+	 * @param slot Slot to load
+	 * @return CivModel of the saved game
+	 * @throws NullPointerException if the save cannot be loaded, as CivModel() does
+	 */
+	public CivModel load(Slot slot) throws NullPointerException {
+		return new CivModel(dir.resolve(slot.name + EXTENSION));
+	}
+
+	/**
+	 * Turn any text into a name that can be used for a slot, and so for a file name,
+	 * by replacing unusual characters.
+	 *
+	 * @param text String to name a slot after
+	 * @return String usable as a slot name
+	 */
+	public static String slotName(String text) {
+		StringBuilder name = new StringBuilder();
+		for (int i = 0; i < text.length() && name.length() < MAX_NAME; i++) {
+			char c = text.charAt(i);
+			boolean plain = (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9')
+					|| c == ' ' || c == '-' || c == '_' || c == ',';
+			name.append(plain ? c : '_');
+		}
+		return name.toString().trim().isEmpty() ? "save" : name.toString();
+	}
+
+	/**
+	 * Read the index, or nothing if it is missing or cannot be read.
+	 */
+	private Map<String, Slot> readIndex() {
+		Map<String, Slot> slots = new HashMap<String, Slot>();
+		try (FileChannel channel = FileChannel.open(dir.resolve(INDEX), StandardOpenOption.READ)) {
+			SaveReader in = new SaveReader(channel);
+			if (in.getInt() != INDEX_MAGIC || in.getShort() != INDEX_VERSION)
+				return slots;
+			int count = in.getCount(Integer.MAX_VALUE);
+			for (int i = 0; i < count; i++) {
+				String name = in.getString();
+				long fileSize = in.getLong();
+				long modified = in.getLong();
+				slots.put(name, new Slot(name, fileSize, modified, SaveHeader.read(in)));
+			}
+			return slots;
+		} catch (NoSuchFileException e) {
+			return slots;
+		} catch (IOException e) { // a damaged index is rebuilt from the saves
+			return new HashMap<String, Slot>();
+		}
+	}
+
+	/**
+	 * Replace the index with one describing the given slots.
+	 */
+	private void writeIndex(List<Slot> slots) throws IOException {
+		Path temp = dir.resolve(INDEX + ".tmp");
+		try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+				StandardOpenOption.TRUNCATE_EXISTING)) {
+			SaveWriter out = new SaveWriter(channel);
+			out.putInt(INDEX_MAGIC);
+			out.putShort(INDEX_VERSION);
+			out.putInt(slots.size());
+			for (Slot s : slots) {
+				out.putString(s.name);
+				out.putLong(s.fileSize);
+				out.putLong(s.modified);
+				s.header.write(out);
+			}
+			out.flush();
+		}
+		Files.move(temp, dir.resolve(INDEX), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+	}
+
+	/**
+	 * One save slot, as described by the index.
+	 *
+	 * @field name String naming the slot
+	 * @field fileSize long of bytes in the save when it was indexed
+	 * @field modified long of ms since the epoch the save was last modified when it
+	 *        was indexed
+	 * @field header SaveHeader of the save
+	 */
+	public static class Slot {
+		public final String name;
+		public final long fileSize;
+		public final long modified;
+		public final SaveHeader header;
+
+		private Slot(String name, long fileSize, long modified, SaveHeader header) {
+			this.name = name;
+			this.fileSize = fileSize;
+			this.modified = modified;
+			this.header = header;
+		}
+	}
+
+}
@@ -0,0 +1,217 @@
+package models;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.Deflater;
+
+/**
+ * SaveWriter.java
+ *
+ * Writes the primitives of a save file to a channel through one reused direct buffer.
+ * Numbers are big endian. Large arrays go through the buffer a chunk at a time with bulk
+ * puts, and byte arrays larger than the buffer are handed to the channel directly, so
+ * writing a layer of the board costs about as much as copying it.
+ *
+ * After compress() everything written is deflated on its way to the channel, one buffer
+ * at a time, so compression costs no extra copy of the save.
+ *
+ * Nothing reaches the channel until the buffer fills or flush() is called, so callers
+ * must flush once they are done, or call finish() if the output is compressed.
+ *
+ * @field BUFFER_SIZE bytes buffered before they are written to the channel
+ * @field channel WritableByteChannel being written to
+ * @field buffer direct buffer collecting writes
+ * @field written bytes written so far, counted before compression
+ * @field deflater Deflater compressing the output, null until compress() is called
+ * @field deflated direct buffer receiving compressed bytes on their way to the channel
+ */
+public class SaveWriter {
+
+	private static final int BUFFER_SIZE = 1 << 16;
+
+	private final WritableByteChannel channel;
+	private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+	private long written;
+	private Deflater deflater;
+	private ByteBuffer deflated;
+
+	/**
+	 * Create a writer over the given channel, which is left open.
+	 *
+	 * @param channel WritableByteChannel to write to
+	 */
+	public SaveWriter(WritableByteChannel channel) {
+		this.channel = channel;
+	}
+
+	public void putByte(int b) throws IOException {
+		ensure(1);
+		buffer.put((byte) b);
+	}
+
+	public void putBoolean(boolean b) throws IOException {
+		putByte(b ? 1 : 0);
+	}
+
+	public void putShort(int s) throws IOException {
+		ensure(2);
+		buffer.putShort((short) s);
+	}
+
+	public void putInt(int i) throws IOException {
+		ensure(4);
+		buffer.putInt(i);
+	}
+
+	public void putLong(long l) throws IOException {
+		ensure(8);
+		buffer.putLong(l);
+	}
+
+	public void putDouble(double d) throws IOException {
+		ensure(8);
+		buffer.putDouble(d);
+	}
+
+	/**
+	 * Write a string as its UTF-8 length followed by its UTF-8 bytes.
+	 *
+	 * @param s String to write
+	 */
+	public void putString(String s) throws IOException {
+		byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+		putInt(bytes.length);
+		putBytes(bytes);
+	}
+
+	/**
+	 * Write every byte of the array, without its length.
+	 *
+	 * @param bytes byte[] to write
+	 */
+	public void putBytes(byte[] bytes) throws IOException {
+		if (bytes.length <= buffer.remaining()) {
+			buffer.put(bytes);
+			return;
+		}
+		flush();
+		if (bytes.length <= buffer.capacity()) {
+			buffer.put(bytes);
+			return;
+		}
+		drain(ByteBuffer.wrap(bytes));
+	}
+
+	/**
+	 * Write every int of the array, without its length.
+	 *
+	 * @param ints int[] to write
+	 */
+	public void putInts(int[] ints) throws IOException {
+		int done = 0;
+		while (done < ints.length) {
+			ensure(4);
+			int n = Math.min(buffer.remaining() / 4, ints.length - done);
+			buffer.asIntBuffer().put(ints, done, n);
+			buffer.position(buffer.position() + n * 4);
+			done += n;
+		}
+	}
+
+	/**
+	 * Write every long of the array, without its length.
+	 *
+	 * @param longs long[] to write
+	 */
+	public void putLongs(long[] longs) throws IOException {
+		int done = 0;
+		while (done < longs.length) {
+			ensure(8);
+			int n = Math.min(buffer.remaining() / 8, longs.length - done);
+			buffer.asLongBuffer().put(longs, done, n);
+			buffer.position(buffer.position() + n * 8);
+			done += n;
+		}
+	}
+
+	/**
+	 * Compress everything written from now on with the given Deflater level.
+	 *
+	 * @param level int from Deflater.BEST_SPEED to Deflater.BEST_COMPRESSION
+	 */
+	public void compress(int level) throws IOException {
+		flush();
+		deflater = new Deflater(level);
+		deflated = ByteBuffer.allocateDirect(BUFFER_SIZE);
+	}
+
+	/**
+	 * Hand everything buffered so far to the channel. Once compressing, some of it may
+	 * be held back by the Deflater until finish().
+	 */
+	public void flush() throws IOException {
+		buffer.flip();
+		drain(buffer);
+		buffer.clear();
+	}
+
+	/**
+	 * Flush, and end the compressed stream if there is one. Nothing may be written
+	 * after this.
+	 */
+	public void finish() throws IOException {
+		flush();
+		if (deflater == null)
+			return;
+		deflater.finish();
+		while (!deflater.finished())
+			deflateInto();
+		deflater.end();
+	}
+
+	/**
+	 * Write all remaining bytes of src to the channel, compressing them if needed.
+	 */
+	private void drain(ByteBuffer src) throws IOException {
+		if (deflater == null) {
+			while (src.hasRemaining())
+				written += channel.write(src);
+			return;
+		}
+		written += src.remaining();
+		deflater.setInput(src);
+		while (!deflater.needsInput())
+			deflateInto();
+	}
+
+	/**
+	 * Run the Deflater once and write out what it produced.
+	 */
+	private void deflateInto() throws IOException {
+		deflated.clear();
+		deflater.deflate(deflated);
+		deflated.flip();
+		while (deflated.hasRemaining())
+			channel.write(deflated);
+	}
+
+	/**
+	 * Number of bytes written so far, buffered ones included.
+	 *
+	 * @return long offset of the next byte to be written
+	 */
+	public long position() {
+		return written + buffer.position();
+	}
+
+	/**
+	 * Make room for n more bytes in the buffer.
+	 */
+	private void ensure(int n) throws IOException {
+		if (buffer.remaining() < n)
+			flush();
+	}
+
+}
@@ -0,0 +1,160 @@
+package simulation;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import controllers.CivController;
+import controllers.Journal;
+import controllers.TurnListener;
+import models.CivModel;
+import models.Player;
+
+/**
+ * HeadlessGame.java
+ *
+ * One game played to the end without a view, with the computer on every seat. The game
+ * is driven straight through CivController: the first CPU turn is started and the
+ * controller's turn loop plays every turn after it, until one player is left or the round
+ * limit is reached. A TurnStats row is recorded for every turn played, timed by the
+ * TurnListener hooks the loop calls around each turn.
+ *
+ * @field model CivModel of the game
+ * @field controller CivController playing the game
+ * @field rounds int of rounds the game may last
+ * @field turns TurnStats of every turn played so far
+ * @field firstRound round the model is in once starting units are placed
+ * @field turnStart System.nanoTime() when the current turn started
+ * @field journalFile Path to record the game to, null to not record it
+ */
+public class HeadlessGame implements TurnListener {
+
+	private final CivModel model;
+	private final CivController controller;
+	private final int rounds;
+	private final ArrayList<TurnStats> turns = new ArrayList<TurnStats>();
+	private int firstRound;
+	private long turnStart;
+	private Path journalFile;
+
+	/**
+	 * Set up a game ready to be played.
+	 *
+	 * @param map     int specifying which map to play on (1-5)
+	 * @param size    int specifying the size of the map (only applicable if map 4 or 5)
+	 * @param players int of CPU players
+	 * @param seed    long seeding the generation of maps 4 and 5
+	 * @param rounds  int of rounds to play at most
+	 */
+	public HeadlessGame(int map, int size, int players, long seed, int rounds) {
+		this.model = new CivModel(players, map, size, seed);
+		this.controller = new CivController(model);
+		this.rounds = rounds;
+		controller.setTurnListener(this);
+	}
+
+	/**
+	 * Play the game on the calling thread until it is won or the round limit is
+	 * reached.
+	 *
+	 * @throws IllegalStateException if the game failed while being played
+	 */
+	public void play() {
+		try {
+			controller.placeStartingUnits();
+			firstRound = model.roundNumber();
+			controller.setRoundLimit(firstRound + rounds);
+			Journal journal = journalFile == null ? null : new Journal(journalFile, model);
+			controller.setJournal(journal, 0);
+			if (rounds > 0)
+				controller.startTurn();
+			if (journal != null)
+				journal.close();
+		} catch (IOException | RuntimeException e) {
+			throw new IllegalStateException("game failed in round " + model.roundNumber(), e);
+		}
+	}
+
+	/**
+	 * Record every command of the game to a journal that Replay can play back.
+	 *
+	 * @param file Path to write the journal to
+	 */
+	public void setJournal(Path file) {
+		this.journalFile = file;
+	}
+
+	@Override
+	public void turnStarted(Player player, int round) {
+		turnStart = System.nanoTime();
+	}
+
+	@Override
+	public void turnEnded(Player player, int round) {
+		turns.add(new TurnStats(round, player.getID(), player.getUnits().size(),
+				player.getCities().size(), System.nanoTime() - turnStart));
+	}
+
+	/**
+	 * Player left standing once the game is over.
+	 *
+	 * @return the winning Player, or null if the round limit was reached first
+	 */
+	public Player getWinner() {
+		return controller.gameOver() ? model.getCurPlayer() : null;
+	}
+
+	/**
+	 * Number of rounds that were started.
+	 *
+	 * @return int of rounds played, counting a round cut short by the end of the game
+	 */
+	public int getRoundsPlayed() {
+		return turns.isEmpty() ? 0 : turns.get(turns.size() - 1).round - firstRound + 1;
+	}
+
+	/**
+	 * Statistics of every turn played, in the order they were played.
+	 *
+	 * @return List of TurnStats
+	 */
+	public List<TurnStats> getTurns() {
+		return turns;
+	}
+
+	/**
+	 * getter for the model the game was played on
+	 *
+	 * @return the game's CivModel
+	 */
+	public CivModel getModel() {
+		return model;
+	}
+
+	/**
+	 * State of one player at the end of one of their turns.
+	 *
+	 * @field round int of the round the turn belonged to
+	 * @field player String ID of the player who took the turn
+	 * @field units int of units the player had when their turn ended
+	 * @field cities int of cities the player had when their turn ended
+	 * @field nanos long of nanoseconds the turn took, housekeeping included
+	 */
+	public static class TurnStats {
+		public final int round;
+		public final String player;
+		public final int units;
+		public final int cities;
+		public final long nanos;
+
+		private TurnStats(int round, String player, int units, int cities, long nanos) {
+			this.round = round;
+			this.player = player;
+			this.units = units;
+			this.cities = cities;
+			this.nanos = nanos;
+		}
+	}
+
+}
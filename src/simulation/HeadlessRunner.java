@@ -0,0 +1,54 @@
+package simulation;
+
+import java.io.PrintStream;
+import java.nio.file.Paths;
+
+import models.Player;
+
+/**
+ * HeadlessRunner.java
+ *
+ * Command line entry point that plays one game with the computer on every seat and no
+ * JavaFX at all, then prints one CSV row per turn played to standard out:
+ *
+ * 	round,player,units,cities,nanos
+ *
+ * followed by a summary line starting with '#'. Takes --map, --size, --players, --seed,
+ * --turns and --journal, see Options. A recorded game can be played back with Replay.
+ *
+ * Like Civ, it has to be started from the repository root so the map files are found.
+ */
+public class HeadlessRunner {
+
+	public static void main(String[] args) {
+		Options o = null;
+		try {
+			o = Options.parse(args, false);
+		} catch (IllegalArgumentException e) {
+			System.err.println(e.getMessage());
+			System.err.println("usage: HeadlessRunner [--map 1-5] [--size N] [--players 2-4] [--seed N] [--turns N]"
+					+ " [--journal FILE]");
+			System.exit(2);
+		}
+
+		HeadlessGame game = new HeadlessGame(o.map, o.size, o.players, o.seed, o.turns);
+		if (o.journal != null)
+			game.setJournal(Paths.get(o.journal));
+		long start = System.nanoTime();
+		game.play();
+		long elapsed = System.nanoTime() - start;
+		PrintStream out = System.out;
+		out.println("round,player,units,cities,nanos");
+		StringBuilder row = new StringBuilder();
+		for (HeadlessGame.TurnStats t : game.getTurns()) {
+			row.setLength(0);
+			row.append(t.round).append(',').append(t.player).append(',').append(t.units).append(',')
+					.append(t.cities).append(',').append(t.nanos);
+			out.println(row);
+		}
+		Player winner = game.getWinner();
+		out.println("# " + o + " rounds=" + game.getRoundsPlayed() + " winner="
+				+ (winner == null ? "none" : winner.getID()) + " nanos=" + elapsed);
+	}
+
+}
@@ -0,0 +1,104 @@
+package simulation;
+
+/**
+ * Options.java
+ *
+ * Command line options shared by HeadlessRunner and Tournament. Every option takes one
+ * value and may be left out:
+ *
+ * 	--map N      map to play on, 1-5 (default 4)
+ * 	--size N     size of map 4 or 5 (default 40)
+ * 	--players N  number of CPU players, 2 up to the map's starting locations (default 2)
+ * 	--seed N     seed of the game, or of the first game of a tournament (default random)
+ * 	--turns N    rounds to play before stopping (default 500)
+ * 	--journal F  record the game to journal file F (one game only)
+ * 	--games N    games in a tournament (default 100)
+ * 	--threads N  games played at once in a tournament (default one per core)
+ *
+ * @field MAX_PLAYERS starting locations available on each map, indexed by map number
+ */
+public class Options {
+
+	static final int[] MAX_PLAYERS = { 0, 4, 3, 2, 4, 4 };
+
+	int map = 4;
+	int size = 40;
+	int players = 2;
+	long seed = System.nanoTime();
+	int turns = 500;
+	int games = 100;
+	int threads = Runtime.getRuntime().availableProcessors();
+	String journal;
+
+	/**
+	 * Read options from the command line.
+	 *
+	 * @param args       the command line
+	 * @param tournament true to also accept --games and --threads
+	 * @return the parsed Options
+	 * @throws IllegalArgumentException describing the first bad option
+	 */
+	public static Options parse(String[] args, boolean tournament) {
+		Options o = new Options();
+		for (int i = 0; i < args.length; i += 2) {
+			if (i + 1 >= args.length)
+				throw new IllegalArgumentException("missing value for " + args[i]);
+			String value = args[i + 1];
+			switch (args[i]) {
+			case "--map":
+				o.map = Integer.parseInt(value);
+				break;
+			case "--size":
+				o.size = Integer.parseInt(value);
+				break;
+			case "--players":
+				o.players = Integer.parseInt(value);
+				break;
+			case "--seed":
+				o.seed = Long.parseLong(value);
+				break;
+			case "--turns":
+				o.turns = Integer.parseInt(value);
+				break;
+			case "--journal":
+				if (tournament)
+					throw new IllegalArgumentException("unknown option " + args[i]);
+				o.journal = value;
+				break;
+			case "--games":
+				if (!tournament)
+					throw new IllegalArgumentException("unknown option " + args[i]);
+				o.games = Integer.parseInt(value);
+				break;
+			case "--threads":
+				if (!tournament)
+					throw new IllegalArgumentException("unknown option " + args[i]);
+				o.threads = Integer.parseInt(value);
+				break;
+			default:
+				throw new IllegalArgumentException("unknown option " + args[i]);
+			}
+		}
+		if (o.map < 1 || o.map > 5)
+			throw new IllegalArgumentException("map must be 1-5");
+		if (o.players < 2 || o.players > MAX_PLAYERS[o.map])
+			throw new IllegalArgumentException("map " + o.map + " takes 2-" + MAX_PLAYERS[o.map] + " players");
+		if (o.map >= 4 && o.size < 5)
+			throw new IllegalArgumentException("size must be at least 5");
+		if (o.turns < 0)
+			throw new IllegalArgumentException("turns must not be negative");
+		if (o.games < 1 || o.threads < 1)
+			throw new IllegalArgumentException("games and threads must be at least 1");
+		return o;
+	}
+
+	/**
+	 * Options as a single line, for the summary of a run.
+	 *
+	 * @return String of space separated key=value pairs
+	 */
+	public String toString() {
+		return "map=" + map + " size=" + size + " players=" + players + " seed=" + seed + " turns=" + turns;
+	}
+
+}
@@ -0,0 +1,66 @@
+package simulation;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Paths;
+
+import controllers.Journal;
+import controllers.TurnListener;
+import models.CivModel;
+import models.Player;
+
+/**
+ * Replay.java
+ *
+ * Command line entry point that plays back a game recorded to a journal, as fast as the
+ * engine allows and without JavaFX. Recorded commands are played as they are, so the
+ * computer's turn logic is never run. Prints one CSV row per turn replayed to standard
+ * out, in the same layout as HeadlessRunner:
+ *
+ * 	round,player,units,cities,nanos
+ *
+ * followed by a summary line starting with '#'. Takes the journal file to replay,
+ * journal.dat if left out. Turns that were slow or went wrong when the game was played
+ * can be reproduced exactly this way.
+ *
+ * @field rows CSV rows of the turns replayed so far
+ * @field turns number of turns replayed so far
+ * @field turnStart System.nanoTime() when the current turn started
+ */
+public class Replay implements TurnListener {
+
+	private final StringBuilder rows = new StringBuilder();
+	private int turns;
+	private long turnStart;
+
+	public static void main(String[] args) throws IOException {
+		if (args.length > 1) {
+			System.err.println("usage: Replay [journal file]");
+			System.exit(2);
+		}
+		String file = args.length == 1 ? args[0] : CivModel.JOURNAL_FILE;
+		Replay replay = new Replay();
+		long start = System.nanoTime();
+		CivModel model = Journal.replay(Paths.get(file), replay);
+		long elapsed = System.nanoTime() - start;
+		PrintStream out = System.out;
+		out.println("round,player,units,cities,nanos");
+		out.print(replay.rows);
+		out.println("# journal=" + file + " turns=" + replay.turns + " round=" + model.roundNumber()
+				+ " players=" + model.numPlayers() + " nanos=" + elapsed);
+	}
+
+	@Override
+	public void turnStarted(Player player, int round) {
+		turnStart = System.nanoTime();
+	}
+
+	@Override
+	public void turnEnded(Player player, int round) {
+		long nanos = System.nanoTime() - turnStart;
+		rows.append(round).append(',').append(player.getID()).append(',').append(player.getUnits().size())
+				.append(',').append(player.getCities().size()).append(',').append(nanos).append('\n');
+		turns++;
+	}
+
+}
@@ -0,0 +1,157 @@
+package simulation;
+
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import models.Player;
+
+/**
+ * Tournament.java
+ *
+ * Command line entry point that plays many independent headless games at once, one
+ * game per pool thread, and aggregates their results. Every game gets its own seed,
+ * drawn in order from the tournament seed, so a tournament can be replayed game for
+ * game. Prints one CSV row per game to standard out:
+ *
+ * 	game,seed,rounds,winner,nanos
+ *
+ * followed by summary lines starting with '#': wins per seat, game length and the
+ * spread of turn times over every turn of every game. Takes the Options of
+ * HeadlessRunner plus --games and --threads.
+ *
+ * Games share nothing but immutable tables such as Unit.unitCosts, so they need no
+ * locking between them.
+ */
+public class Tournament {
+
+	public static void main(String[] args) throws InterruptedException, ExecutionException {
+		Options o = null;
+		try {
+			o = Options.parse(args, true);
+		} catch (IllegalArgumentException e) {
+			System.err.println(e.getMessage());
+			System.err.println("usage: Tournament [--games N] [--threads N] [--map 1-5] [--size N]"
+					+ " [--players 2-4] [--seed N] [--turns N]");
+			System.exit(2);
+		}
+		long start = System.nanoTime();
+		List<Result> results = play(o);
+		long elapsed = System.nanoTime() - start;
+		report(o, results, elapsed, System.out);
+	}
+
+	/**
+	 * Play o.games games on a pool of o.threads threads.
+	 *
+	 * @param o Options of the tournament
+	 * @return Result of every game, in game order
+	 * @throws ExecutionException if a game failed
+	 */
+	public static List<Result> play(Options o) throws InterruptedException, ExecutionException {
+		SplittableRandom seeds = new SplittableRandom(o.seed);
+		ExecutorService pool = Executors.newFixedThreadPool(o.threads);
+		try {
+			List<Future<Result>> futures = new ArrayList<Future<Result>>();
+			for (int i = 0; i < o.games; i++) {
+				final int id = i;
+				final long seed = seeds.nextLong();
+				futures.add(pool.submit(() -> {
+					HeadlessGame game = new HeadlessGame(o.map, o.size, o.players, seed, o.turns);
+					long gameStart = System.nanoTime();
+					game.play();
+					return new Result(id, seed, game, System.nanoTime() - gameStart);
+				}));
+			}
+			List<Result> results = new ArrayList<Result>();
+			for (Future<Result> f : futures)
+				results.add(f.get());
+			return results;
+		} finally {
+			pool.shutdownNow();
+		}
+	}
+
+	/**
+	 * Print one row per game and the aggregated summary.
+	 */
+	private static void report(Options o, List<Result> results, long elapsed, PrintStream out) {
+		out.println("game,seed,rounds,winner,nanos");
+		Map<String, Integer> wins = new TreeMap<String, Integer>();
+		int[] lengths = new int[results.size()];
+		int turnCount = 0;
+		for (Result r : results)
+			turnCount += r.turnNanos.length;
+		long[] turnNanos = new long[turnCount];
+		int t = 0;
+		for (Result r : results) {
+			out.println(r.game + "," + r.seed + "," + r.rounds + "," + r.winner + "," + r.nanos);
+			wins.merge(r.winner, 1, Integer::sum);
+			lengths[r.game] = r.rounds;
+			System.arraycopy(r.turnNanos, 0, turnNanos, t, r.turnNanos.length);
+			t += r.turnNanos.length;
+		}
+		Arrays.sort(lengths);
+		Arrays.sort(turnNanos);
+		out.println("# " + o + " games=" + o.games + " threads=" + o.threads + " nanos=" + elapsed
+				+ " gamesPerHour=" + (long) (o.games * 3.6e12 / elapsed));
+		StringBuilder line = new StringBuilder("# wins");
+		for (Map.Entry<String, Integer> e : wins.entrySet())
+			line.append(' ').append(e.getKey().replace(' ', '_')).append('=')
+					.append(String.format("%.3f", e.getValue() / (double) results.size()));
+		out.println(line);
+		out.println("# rounds mean=" + String.format("%.1f", Arrays.stream(lengths).average().orElse(0))
+				+ " p50=" + percentile(lengths, 0.5) + " max=" + (lengths.length == 0 ? 0 : lengths[lengths.length - 1]));
+		out.println("# turnNanos count=" + turnNanos.length + " mean="
+				+ (long) Arrays.stream(turnNanos).average().orElse(0) + " p50=" + percentile(turnNanos, 0.5)
+				+ " p99=" + percentile(turnNanos, 0.99) + " max="
+				+ (turnNanos.length == 0 ? 0 : turnNanos[turnNanos.length - 1]));
+	}
+
+	private static int percentile(int[] sorted, double p) {
+		return sorted.length == 0 ? 0 : sorted[(int) Math.min(sorted.length - 1, (long) (p * sorted.length))];
+	}
+
+	private static long percentile(long[] sorted, double p) {
+		return sorted.length == 0 ? 0 : sorted[(int) Math.min(sorted.length - 1, (long) (p * sorted.length))];
+	}
+
+	/**
+	 * Outcome of one game of a tournament. Only the numbers are kept, so the game
+	 * itself can be collected as soon as it is over.
+	 *
+	 * @field game int of the game's position in the tournament
+	 * @field seed long the game was generated from
+	 * @field rounds int of rounds played
+	 * @field winner String ID of the winner, "none" if the round limit was reached
+	 * @field nanos long of nanoseconds the whole game took
+	 * @field turnNanos nanoseconds taken by each turn, in the order they were played
+	 */
+	public static class Result {
+		public final int game;
+		public final long seed;
+		public final int rounds;
+		public final String winner;
+		public final long nanos;
+		public final long[] turnNanos;
+
+		private Result(int game, long seed, HeadlessGame played, long nanos) {
+			this.game = game;
+			this.seed = seed;
+			this.rounds = played.getRoundsPlayed();
+			Player w = played.getWinner();
+			this.winner = w == null ? "none" : w.getID();
+			this.nanos = nanos;
+			this.turnNanos = played.getTurns().stream().mapToLong(s -> s.nanos).toArray();
+		}
+	}
+
+}
@@ -1,15 +1,31 @@
 package tests;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 
 import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
 
 import org.junit.Test;
 
+import components.City;
 import components.Tile;
 import controllers.CivController;
+import models.CivBoard;
+import models.CityIndex;
 import models.CivModel;
+import models.FogOfWar;
+import models.Player;
 
 /**
  * Tests the methods of CivBoard.
@@ -62,8 +78,255 @@ public class CivBoardTest {
 		assertEquals(model5.getTileAt(2,2).getTerrainType(), Tile.terrainTypes.HILL); // in a hilly area
 		assertEquals(model5.getTileAt(4,2).getTerrainType(), Tile.terrainTypes.HILL);
 	}
-	
-	
-	
-	
+
+	@Test
+	public void testTileViews() {
+		CivBoard board = new CivBoard(20, Tile.terrainTypes.HILL);
+		board.setTile(3, 4, Tile.terrainTypes.SWAMP, "horse");
+		Tile view1 = board.getTile(3, 4);
+		Tile view2 = board.getTile(3, 4);
+		assertEquals(view1, view2); // views of the same location are equal
+		assertNotEquals(view1, board.getTile(4, 3));
+		assertEquals(view1.getTerrainType(), Tile.terrainTypes.SWAMP);
+		assertEquals(view1.getResourceType(), "horse");
+		assertEquals(view1.getMovementModifier(), -1);
+
+		// state changed through one view is seen by every other view
+		City city = new City(new Player(1, "Player 1"), 3, 4);
+		assertTrue(view1.foundCity(city));
+		assertTrue(view2.isCityTile());
+		assertEquals(view2.getOwnerCity(), city);
+		assertEquals(view2.getMovementModifier(), 0);
+		assertEquals(view2.getAttackModifier(), 1.25, 0);
+		view2.destroyCity();
+		assertFalse(view1.isCityTile());
+		assertNull(view1.getOwnerCity());
+		assertEquals(view1.getAttackModifier(), 1.25, 0); // city modifiers stay behind
+		assertNull(board.getTile(20, 0));
+	}
+
+	@Test
+	public void testFogOfWar() {
+		CivBoard board = new CivBoard(70, Tile.terrainTypes.FIELD); // rows straddle 64 bit words
+		FogOfWar fog = board.getFog();
+		Player p1 = new Player(1, "Player 1");
+		Player p2 = new Player(1, "Player 2");
+		assertFalse(fog.anyRevealed(p1, 0, 0, 69, 69));
+		assertTrue(fog.anyHidden(p1, 0, 0, 69, 69));
+
+		fog.revealArea(p1, 60, 10, 75, 12); // clipped at the right edge
+		for (int x = 60; x < 70; x++) {
+			assertTrue(fog.isRevealed(p1, x, 11));
+			assertTrue(board.getTile(x, 12).canSeeTile(p1));
+		}
+		assertFalse(fog.isRevealed(p1, 59, 11));
+		assertFalse(fog.isRevealed(p1, 60, 13));
+		assertFalse(fog.isRevealed(p1, 70, 11)); // off the board
+		assertFalse(fog.isRevealed(p2, 60, 11)); // fog is per player
+
+		assertFalse(fog.anyHidden(p1, 60, 10, 69, 12));
+		assertTrue(fog.anyHidden(p1, 59, 10, 69, 12));
+		assertTrue(fog.anyRevealed(p1, 0, 0, 60, 10));
+		assertFalse(fog.anyRevealed(p1, 0, 0, 59, 69));
+
+		board.getTile(5, 5).revealTile(p2);
+		assertTrue(fog.isRevealed(p2, 5, 5));
+		assertTrue(fog.anyHidden(p2, 4, 4, 6, 6)); // hidden neighbours around 5,5
+	}
+
+	@Test
+	public void testCityIndex() {
+		CivBoard board = new CivBoard(100, Tile.terrainTypes.FIELD);
+		Player[] players = { new Player(1, "Player 1"), new Player(1, "Player 2"), new Player(0, "CPU Player") };
+		Random rng = new Random(7);
+		for (int i = 0; i < 60; i++) {
+			int x = rng.nextInt(100), y = rng.nextInt(100);
+			board.getTile(x, y).foundCity(new City(players[i % 3], x, y));
+		}
+		// destroy a few so the index has to forget them
+		for (int i = 0; i < 100 * 100; i += 7) {
+			Tile t = board.getTile(i % 100, i / 100);
+			if (t.isCityTile())
+				t.destroyCity();
+		}
+		CityIndex index = board.getCityIndex();
+		for (int i = 0; i < 200; i++) {
+			int x = rng.nextInt(100), y = rng.nextInt(100);
+			Player p = players[i % 3];
+			// brute force scan, column by column
+			City expected = null;
+			int minDist = Integer.MAX_VALUE;
+			for (int cx = 0; cx < 100; cx++) {
+				for (int cy = 0; cy < 100; cy++) {
+					Tile t = board.getTile(cx, cy);
+					if (t.isCityTile() && t.getOwnerCity().getOwner() != p) {
+						int dist = Math.max(Math.abs(cx - x), Math.abs(cy - y));
+						if (dist < minDist) {
+							minDist = dist;
+							expected = t.getOwnerCity();
+						}
+					}
+				}
+			}
+			assertEquals(expected, index.nearestEnemyCity(p, x, y));
+		}
+		assertNull(new CityIndex(10).nearestEnemyCity(players[0], 3, 3));
+	}
+
+	@Test
+	public void testCityIndexFoundDestroy() {
+		// the first city founded on a new board builds the index, and must not be in it twice
+		CivBoard board = new CivBoard(20, Tile.terrainTypes.FIELD);
+		Player human = new Player(1, "Player 1"), cpu = new Player(0, "CPU Player");
+		City city = new City(human, 4, 4);
+		assertTrue(board.getTile(4, 4).foundCity(city));
+		CityIndex index = board.getCityIndex();
+		assertEquals(1, index.citiesOf(human));
+		assertEquals(city, index.nearestEnemyCity(cpu, 10, 10));
+		index.add(city);
+		assertEquals(1, index.citiesOf(human));
+		board.getTile(4, 4).destroyCity();
+		assertEquals(0, index.citiesOf(human));
+		assertNull(index.nearestEnemyCity(cpu, 10, 10));
+	}
+
+	@Test
+	public void testMapFile() throws IOException {
+		Path plain = Files.createTempFile("plain", ".txt");
+		Path runs = Files.createTempFile("runs", ".txt");
+		Path broken = Files.createTempFile("broken", ".txt");
+		try {
+			// tiles go column by column, so x = 0 is the first three lines
+			Files.write(plain, "3\r\nwater n\r\nfield w // a comment\n\nwater n\nhill i\nhill i\nhill i\nswamp h\nmountain n\nmountain n"
+					.getBytes());
+			Files.write(runs, "// runs\n3\n1 water n\nfield w\nwater n\n3 hill i\nswamp h\n2 mountain n\n".getBytes());
+			CivBoard a = new CivBoard(plain.toString());
+			CivBoard b = new CivBoard(runs.toString());
+			assertEquals(a.size, 3);
+			assertEquals(a.getTile(0, 1).getTerrainType(), Tile.terrainTypes.FIELD);
+			assertEquals(a.getTile(0, 1).getResourceType(), "wheat");
+			assertEquals(a.getTile(1, 0).getResourceType(), "iron");
+			assertEquals(a.getTile(2, 0).getTerrainType(), Tile.terrainTypes.SWAMP);
+			assertEquals(a.getTile(2, 2).getTerrainType(), Tile.terrainTypes.MOUNTAIN);
+			for (int x = 0; x < 3; x++) {
+				for (int y = 0; y < 3; y++) {
+					assertEquals(b.getTile(x, y).getTerrainType(), a.getTile(x, y).getTerrainType());
+					assertEquals(b.getTile(x, y).getResourceType(), a.getTile(x, y).getResourceType());
+				}
+			}
+
+			String[][] malformed = { { "2\nfield n\nfiehillld n\nhill n\nhill n", ":3:1: unknown terrain fiehillld" },
+					{ "2\nfield n\nfield x\n", ":3:7: unknown resource x" },
+					{ "2\n4 field n extra", ":2:11: unexpected extra after the tile" },
+					{ "2\n3 field n\n2 hill n", ":3:1: more than the 4 tiles of a 2x2 board" },
+					{ "2\nfield n\n", ":3:1: only 1 of the 4 tiles of a 2x2 board" },
+					{ "field n", ":1:1: expected the size of the board" } };
+			for (String[] m : malformed) {
+				Files.write(broken, m[0].getBytes());
+				try {
+					new CivBoard(broken.toString());
+					fail("loaded " + m[0]);
+				} catch (IOException e) {
+					assertEquals(e.getMessage(), broken.getFileName() + m[1]);
+				}
+			}
+		} finally {
+			Files.delete(plain);
+			Files.delete(runs);
+			Files.delete(broken);
+		}
+		try {
+			new CivBoard(broken.toString());
+			fail("loaded a missing map");
+		} catch (IOException e) {
+			// expected
+		}
+	}
+
+	@Test
+	public void testSharedMap() throws IOException {
+		CivBoard a = new CivBoard("./src/models/Map2.txt");
+		CivBoard b = new CivBoard("./src/models/Map2.txt");
+		assertEquals(a.getTile(2, 2).getTerrainType(), Tile.terrainTypes.HILL);
+		a.setTile(2, 2, Tile.terrainTypes.WATER, "iron"); // copies the shared layers first
+		assertEquals(a.getTile(2, 2).getTerrainType(), Tile.terrainTypes.WATER);
+		assertEquals(a.getTile(2, 2).getResourceType(), "iron");
+		assertEquals(b.getTile(2, 2).getTerrainType(), Tile.terrainTypes.HILL);
+		assertEquals(new CivBoard("./src/models/Map2.txt").getTile(2, 2).getTerrainType(), Tile.terrainTypes.HILL);
+		assertEquals(new CivModel(2, 2, 0, 1).getTileAt(2, 2).getTerrainType(), Tile.terrainTypes.HILL);
+		// boards share terrain, not the state of the game played on them
+		a.getTile(3, 2).foundCity(new City(new Player(1, "Player 1"), 3, 2));
+		assertTrue(a.getTile(3, 2).isCityTile());
+		assertFalse(b.getTile(3, 2).isCityTile());
+	}
+
+	@Test
+	public void testBandedGeneration() throws Exception {
+		// large enough to be generated in bands; the board must not depend on the threads used
+		CivBoard[] boards = new CivBoard[3];
+		int[] threads = { 1, 3, 8 };
+		for (int i = 0; i < boards.length; i++) {
+			ForkJoinPool pool = new ForkJoinPool(threads[i]);
+			boards[i] = pool.submit(() -> new CivBoard(600, 42)).get();
+			pool.shutdown();
+		}
+		CivBoard other = new CivBoard(600, 43);
+		boolean differs = false;
+		for (int x = 0; x < 600; x++) {
+			for (int y = 0; y < 600; y++) {
+				for (int i = 1; i < boards.length; i++) {
+					assertEquals(boards[i].getTile(x, y).getTerrainType(), boards[0].getTile(x, y).getTerrainType());
+					assertEquals(boards[i].getTile(x, y).getResourceType(), boards[0].getTile(x, y).getResourceType());
+				}
+				differs |= other.getTile(x, y).getTerrainType() != boards[0].getTile(x, y).getTerrainType();
+			}
+		}
+		assertTrue(differs);
+		assertEquals(boards[0].getTile(0, 300).getTerrainType(), Tile.terrainTypes.WATER);
+		assertEquals(boards[0].getTile(598, 598).getTerrainType(), Tile.terrainTypes.FIELD);
+	}
+
+	@Test
+	public void testNoiseBoard() {
+		for (long seed = 0; seed < 40; seed++) {
+			ArrayList<int[]> starts = new ArrayList<int[]>();
+			starts.add(new int[] { 1, 1 });
+			starts.add(new int[] { 22, 22 });
+			starts.add(new int[] { 22, 1 });
+			starts.add(new int[] { 1, 22 });
+			CivBoard board = new CivBoard(24, seed, starts);
+			CivBoard again = new CivBoard(24, seed, starts);
+			// flood from the first start over passable tiles, moving to any of the eight neighbours
+			boolean[] reached = new boolean[24 * 24];
+			ArrayDeque<int[]> queue = new ArrayDeque<int[]>();
+			queue.add(starts.get(0));
+			reached[1 * 24 + 1] = true;
+			while (!queue.isEmpty()) {
+				int[] at = queue.poll();
+				for (int dx = -1; dx <= 1; dx++) {
+					for (int dy = -1; dy <= 1; dy++) {
+						Tile t = board.getTile(at[0] + dx, at[1] + dy);
+						if (t != null && t.getMovementModifier() > -1000 && !reached[(at[1] + dy) * 24 + at[0] + dx]) {
+							reached[(at[1] + dy) * 24 + at[0] + dx] = true;
+							queue.add(new int[] { at[0] + dx, at[1] + dy });
+						}
+					}
+				}
+			}
+			for (int[] s : starts) {
+				assertEquals(board.getTile(s[0], s[1]).getTerrainType(), Tile.terrainTypes.FIELD);
+				assertTrue("start cut off on seed " + seed, reached[s[1] * 24 + s[0]]);
+			}
+			for (int x = 0; x < 24; x++) {
+				assertEquals(board.getTile(x, 0).getTerrainType(), Tile.terrainTypes.WATER);
+				assertEquals(board.getTile(0, x).getTerrainType(), Tile.terrainTypes.WATER);
+				for (int y = 0; y < 24; y++)
+					assertEquals(again.getTile(x, y).getTerrainType(), board.getTile(x, y).getTerrainType());
+			}
+		}
+		CivModel model = new CivModel(4, 5, 30, 9);
+		assertEquals(model.getSize(), 30);
+		assertEquals(model.getTileAt(28, 28).getTerrainType(), Tile.terrainTypes.FIELD);
+	}
+
 }
@@ -6,6 +6,10 @@ import static org.junit.jupiter.api.Assertions.assertTrue;
 
 import java.awt.Point;
 import java.io.File;
+import java.io.FileOutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 
 import org.junit.jupiter.api.MethodOrderer.OrderAnnotation;
 import org.junit.jupiter.api.Order;
@@ -13,6 +17,7 @@ import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.TestMethodOrder;
 
 import components.City;
+import components.Militia;
 import components.Scout;
 import components.Settler;
 import components.Swordsman;
@@ -20,11 +25,22 @@ import components.Tile;
 import components.Unit;
 import components.Warrior;
 import controllers.CivController;
+import controllers.FlowFields;
+import controllers.Journal;
+import controllers.PathFinder;
+import controllers.TurnListener;
+import models.Autosave;
+import models.CivBoard;
 import models.CivModel;
+import models.GameEvent;
+import models.ModelChange;
 import models.Player;
 import resources.Horses;
 import resources.Iron;
 import resources.Wheat;
+import simulation.HeadlessGame;
+import simulation.Options;
+import simulation.Tournament;
 
 /**
  * Tests the methods of CivController. Also tests some of the components and
@@ -257,12 +273,103 @@ public class CivControllerTest {
 		assertEquals(wheat.getY(), 0);
 	}
 
+	/**
+	 * Tests that the path finder routes around impassable terrain, prefers cheap
+	 * terrain, and reports unreachable targets.
+	 */
+	@Test
+	@Order(7)
+	void testPathFinder() {
+		CivBoard board = new CivBoard(10, Tile.terrainTypes.FIELD);
+		for (int y = 0; y < 9; y++)
+			board.setTile(5, y, Tile.terrainTypes.WATER, ""); // wall with a gap at the bottom
+		Player p = new Player(0, "CPU Player");
+		Warrior w = new Warrior(p, new Point(2, 2));
+		board.getTile(2, 2).setUnit(w);
+		PathFinder finder = new PathFinder(board);
+		int[] path = new int[100];
+		int length = finder.findPath(w, 8, 2, path);
+		assertTrue(length > 6);
+		assertEquals(path[length - 1], 2 * 10 + 8); // ends on the target
+		boolean throughGap = false;
+		for (int i = 0; i < length; i++) {
+			assertFalse(board.getTile(path[i] % 10, path[i] / 10).getTerrainType() == Tile.terrainTypes.WATER);
+			throughGap |= path[i] == 9 * 10 + 5;
+		}
+		assertTrue(throughGap);
+		assertEquals(finder.nextStep(w, 8, 2), path[0]);
+
+		// a hill costs 2, so walking around it along fields is just as cheap
+		board.setTile(3, 2, Tile.terrainTypes.HILL, "");
+		assertEquals(finder.findPath(w, 4, 2, path), 2);
+		assertEquals(finder.getLastCost(), 2);
+
+		// militia can never climb hills, a ring of them cuts it off
+		Militia m = new Militia(p, new Point(7, 5));
+		for (int x = 6; x <= 8; x++) {
+			for (int y = 4; y <= 6; y++) {
+				if (x != 7 || y != 5)
+					board.setTile(x, y, Tile.terrainTypes.HILL, "");
+			}
+		}
+		assertEquals(finder.findPath(m, 2, 2, path), -1);
+		assertEquals(finder.nextStep(m, 2, 2), -1);
+		assertEquals(finder.getLastCost(), -1);
+	}
+
+	/**
+	 * Tests that flow field costs agree with the path finder and that units step
+	 * downhill on them, around friendly units.
+	 */
+	@Test
+	@Order(8)
+	void testFlowFields() {
+		CivModel model = new CivModel(1, 3, 0); // Thermopylae
+		CivBoard board = model.getCivBoard();
+		Player cpu = new Player(0, "CPU Player");
+		FlowFields fields = new FlowFields(board);
+		PathFinder finder = new PathFinder(board);
+		fields.beginTurn(cpu);
+		int size = board.getSize();
+		for (int x = 0; x < size; x++) {
+			for (int y = 0; y < size; y++) {
+				if (board.getTile(x, y).getMovementModifier() < -2 || (x == 15 && y == 2))
+					continue;
+				Warrior w = new Warrior(cpu, new Point(x, y));
+				finder.findPath(w, 15, 2, new int[0]);
+				int cost = finder.getLastCost();
+				assertEquals(cost == -1 ? FlowFields.UNREACHABLE : cost, fields.distance(15, 2, x, y, 2));
+			}
+		}
+		// walk a warrior to the target one step at a time
+		Warrior w = new Warrior(cpu, new Point(2, 13));
+		board.getTile(2, 13).setUnit(w);
+		int steps = 0;
+		while (w.getX() != 15 || w.getY() != 2) {
+			int step = fields.nextStep(w, 15, 2);
+			assertTrue(step >= 0);
+			assertTrue(fields.distance(15, 2, step % size, step / size, 2) < fields.distance(15, 2, w.getX(), w.getY(), 2));
+			board.getTile(w.getX(), w.getY()).setUnit(null);
+			w.move(0, step % size, step / size);
+			board.getTile(w.getX(), w.getY()).setUnit(w);
+			steps++;
+		}
+		assertTrue(steps < size * 2);
+		// a friendly unit on the best step is stepped around
+		Warrior blocker = new Warrior(cpu, new Point(14, 3));
+		Warrior walker = new Warrior(cpu, new Point(13, 4));
+		board.getTile(13, 4).setUnit(walker);
+		int best = fields.nextStep(walker, 15, 2);
+		board.getTile(best % size, best / size).setUnit(blocker);
+		assertTrue(fields.nextStep(walker, 15, 2) != best);
+	}
+
 	/**
 	 * Tests that the controller's start and end turn methods work correctly.
 	 * Deletes the old saved game state.
 	 */
 	@Test
-	@Order(7)
+	@Order(9)
 	void testGameSave() {
 		File oldGame = new File("save_game.dat");
 		oldGame.delete();
@@ -282,4 +389,277 @@ public class CivControllerTest {
 		oldGame = new File("save_game.dat");
 		oldGame.delete();
 	}
+
+	/**
+	 * Tests that a game with the computer on every seat plays itself, stops at the
+	 * round limit and reports every turn to its listener.
+	 */
+	@Test
+	@Order(10)
+	void testHeadlessGame() throws InterruptedException {
+		HeadlessGame game = new HeadlessGame(4, 20, 2, 42, 3);
+		game.play();
+		assertEquals(game.getRoundsPlayed(), 3);
+		assertEquals(game.getTurns().size(), 6);
+		assertEquals(game.getTurns().get(0).player, "CPU Player 1");
+		assertEquals(game.getTurns().get(1).player, "CPU Player 2");
+		assertEquals(game.getModel().roundNumber(), game.getTurns().get(0).round + 3);
+		assertTrue(game.getModel().isComputer());
+		assertEquals(game.getWinner(), null);
+		// every seat found their city on the first turn
+		assertEquals(game.getTurns().get(5).cities, 1);
+
+		game = new HeadlessGame(3, 0, 2, 0, 0);
+		game.play();
+		assertEquals(game.getRoundsPlayed(), 0);
+		assertTrue(game.getTurns().isEmpty());
+	}
+
+	/**
+	 * Tests that a tournament plays every game on its pool and hands out the same
+	 * seeds each time it is run with the same tournament seed.
+	 */
+	@Test
+	@Order(11)
+	void testTournament() throws Exception {
+		Options o = Options.parse(new String[] { "--games", "6", "--threads", "3", "--size", "12",
+				"--turns", "5", "--seed", "9" }, true);
+		List<Tournament.Result> first = Tournament.play(o);
+		List<Tournament.Result> second = Tournament.play(o);
+		assertEquals(first.size(), 6);
+		for (int i = 0; i < 6; i++) {
+			assertEquals(first.get(i).game, i);
+			assertEquals(first.get(i).seed, second.get(i).seed);
+			assertTrue(first.get(i).rounds <= 5);
+			assertTrue(first.get(i).turnNanos.length > 0);
+		}
+		assertTrue(first.get(0).seed != first.get(1).seed);
+	}
+
+	/**
+	 * Tests that autosaves are written in the background at the start of every
+	 * other round, load back as the game was when they were taken, and leave the
+	 * game being played untouched.
+	 */
+	@Test
+	@Order(12)
+	void testAutosave() throws Exception {
+		File file = File.createTempFile("autosave", ".dat");
+		CivModel model = new CivModel(2, 4, 20, 5);
+		CivController controller = new CivController(model);
+		Autosave autosave = new Autosave(file.toPath());
+		controller.setAutosave(autosave, 2);
+		controller.placeStartingUnits();
+		int limit = model.roundNumber() + 5;
+		controller.setRoundLimit(limit);
+		controller.startTurn();
+		autosave.close();
+		assertEquals(model.roundNumber(), limit);
+		assertTrue(autosave.getSaves() >= 1);
+		assertEquals(autosave.getFailure(), null);
+		CivModel loaded = new CivModel(file.toPath());
+		assertEquals(loaded.roundNumber(), limit - limit % 2);
+		assertEquals(loaded.getSeed(), 5L);
+		assertFalse(new File(file.getPath() + ".tmp").exists());
+		file.delete();
+	}
+
+	/**
+	 * Tests that replaying a recorded game, with and without snapshots starting the
+	 * journal over along the way, ends in exactly the state the game was left in, and
+	 * that a command cut short at the end of the journal is ignored.
+	 */
+	@Test
+	@Order(13)
+	void testJournalReplay() throws Exception {
+		File file = File.createTempFile("journal", ".dat");
+		HeadlessGame game = new HeadlessGame(4, 20, 2, 11, 12);
+		game.setJournal(file.toPath());
+		game.play();
+		byte[] played = game.getModel().snapshot(0);
+		CivModel replayed = Journal.replay(file.toPath(), new TurnListener() {
+		});
+		assertTrue(Arrays.equals(replayed.snapshot(0), played));
+
+		CivModel model = new CivModel(2, 4, 20, 11);
+		CivController controller = new CivController(model);
+		controller.placeStartingUnits();
+		controller.setRoundLimit(model.roundNumber() + 12);
+		Journal journal = new Journal(file.toPath(), model);
+		controller.setJournal(journal, 5);
+		controller.startTurn();
+		journal.close();
+		assertTrue(Arrays.equals(model.snapshot(0), played));
+		assertTrue(journal.getCommands() > 0);
+		replayed = Journal.replay(file.toPath(), new TurnListener() {
+		});
+		assertTrue(Arrays.equals(replayed.snapshot(0), played));
+
+		try (FileOutputStream out = new FileOutputStream(file, true)) {
+			out.write(new byte[] { 1, 0, 3 }); // half a move
+		}
+		replayed = Journal.replay(file.toPath(), new TurnListener() {
+		});
+		assertTrue(Arrays.equals(replayed.snapshot(0), played));
+		file.delete();
+	}
+
+	/**
+	 * Tests that a chain of computer turns reaches observers as one change, naming
+	 * every tile whose unit or city changed, and that nothing is sent when nothing
+	 * changed.
+	 */
+	@Test
+	@Order(14)
+	void testCoalescedChanges() {
+		CivModel model = new CivModel(2, 4, 20, 7);
+		CivController controller = new CivController(model);
+		controller.placeStartingUnits();
+		List<ModelChange> changes = new ArrayList<ModelChange>();
+		model.getEvents().subscribe(GameEvent.ModelChanged.class, e -> changes.add(e.change));
+		int size = model.getSize();
+		Unit[] before = new Unit[size * size];
+		for (int i = 0; i < before.length; i++)
+			before[i] = model.getTileAt(i % size, i / size).getUnit();
+		controller.setRoundLimit(model.roundNumber() + 5);
+		controller.startTurn();
+		assertEquals(changes.size(), 1);
+		ModelChange change = changes.get(0);
+		assertTrue(change.turnChanged());
+		assertTrue(change.fogChanged());
+		int moved = 0;
+		for (int i = 0; i < before.length; i++) {
+			if (model.getTileAt(i % size, i / size).getUnit() != before[i]) {
+				assertTrue(change.getTiles().get(i));
+				moved++;
+			}
+		}
+		assertTrue(moved > 0);
+		for (Player p : model.getAllPlayers()) {
+			for (City c : p.getCities())
+				assertTrue(change.getTiles().get(c.getY() * size + c.getX()));
+		}
+		model.changeAndNotify();
+		assertEquals(changes.size(), 1);
+		model.startBatch();
+		model.finishBatch();
+		assertEquals(changes.size(), 1);
+	}
+
+	/**
+	 * Tests that units listed by their owner catch up with the turns it started as if
+	 * every turn had reset their movement and healed them, and that other units do
+	 * not.
+	 */
+	@Test
+	@Order(15)
+	void testLazyUpkeep() {
+		Player p = new Player(0, "1");
+		Swordsman lazy = new Swordsman(p, new Point(0, 0));
+		Swordsman eager = new Swordsman(p, new Point(1, 0)); // upkept by hand
+		Warrior dead = new Warrior(p, new Point(2, 0));
+		Warrior unlisted = new Warrior(p, new Point(3, 0));
+		p.addUnit(lazy);
+		p.addUnit(dead);
+		for (Unit u : new Unit[] { lazy, eager, dead, unlisted }) {
+			u.takeAttack(u.getMaxHP() * 0.83);
+			u.move(1, u.getX(), u.getY());
+		}
+		dead.takeAttack(100);
+		p.removeUnit(dead);
+		for (int turn = 0; turn < 30; turn++) {
+			p.startTurn();
+			eager.resetMovement();
+			eager.healUnit();
+			if (turn % 7 == 3) {
+				assertEquals(lazy.getHP(), eager.getHP());
+				lazy.move(1, 0, 0);
+				eager.move(1, 1, 0);
+			}
+			if (turn == 9) {
+				lazy.takeAttack(40);
+				eager.takeAttack(40);
+			}
+		}
+		assertEquals(lazy.getHP(), eager.getHP());
+		assertEquals(lazy.getMovement(), eager.getMovement());
+		assertEquals(lazy.getMovement(), lazy.getMaxMovement());
+		assertEquals(dead.getHP(), -83.0);
+		assertEquals(unlisted.getHP(), 17.0);
+		assertEquals(unlisted.getMovement(), 1);
+		Swordsman late = new Swordsman(p, new Point(4, 0)); // joins mid turn
+		late.move(1, 4, 0);
+		p.addUnit(late);
+		assertEquals(late.getMovement(), 0);
+		p.startTurn();
+		assertEquals(late.getMovement(), 1);
+	}
+
+	/**
+	 * Tests the move mask and packed moves of a unit: every neighbour on open ground,
+	 * none past the edges of the board, no hill for a unit with 1 movement, no tile
+	 * held by the current player but tiles held by an enemy, never the unit's own
+	 * tile, and always in the bit order of MOVE_DX and MOVE_DY.
+	 */
+	@Test
+	@Order(16)
+	void testValidMoves() {
+		CivModel model = new CivModel(2, 4, 10, 1);
+		CivController controller = new CivController(model);
+		int size = model.getSize();
+		for (int y = 0; y < size; y++) {
+			for (int x = 0; x < size; x++)
+				model.getCivBoard().setTile(x, y, Tile.terrainTypes.FIELD, "");
+		}
+		Player human = model.getCurPlayer();
+		Player enemy = model.getAllPlayers().get(1);
+		Militia m = new Militia(human, new Point(5, 5));
+		model.getTileAt(5, 5).setUnit(m);
+		assertEquals(controller.getValidMoveMask(m), 0xFF);
+		int[] moves = new int[8];
+		assertEquals(controller.getValidMoves(m, moves), 8);
+		for (int k = 0; k < 8; k++)
+			assertEquals(moves[k], (5 + CivController.MOVE_DY[k]) * size + 5 + CivController.MOVE_DX[k]);
+
+		// a hill costs 2, more than a militia has but not more than a warrior has
+		model.getCivBoard().setTile(4, 5, Tile.terrainTypes.HILL, "");
+		assertEquals(controller.getValidMoveMask(m), 0xFF & ~(1 << 1));
+		Warrior w = new Warrior(human, new Point(5, 5));
+		assertEquals(controller.getValidMoveMask(w), 0xFF);
+
+		// a friendly unit blocks its tile, an enemy can be attacked
+		model.getTileAt(6, 6).setUnit(new Warrior(human, new Point(6, 6)));
+		Warrior e = new Warrior(enemy, new Point(5, 4));
+		model.getTileAt(5, 4).setUnit(e);
+		int mask = controller.getValidMoveMask(m);
+		assertEquals(mask, 0xFF & ~(1 << 1) & ~(1 << 7));
+		assertEquals(controller.getValidMoves(m, moves), 6);
+		assertTrue(Arrays.equals(Arrays.copyOf(moves, 6),
+				new int[] { 4 * size + 4, 6 * size + 4, 4 * size + 5, 6 * size + 5, 4 * size + 6, 5 * size + 6 }));
+		// the computer takes the lowest set bit
+		assertEquals(Integer.numberOfTrailingZeros(mask), 0);
+
+		// a unit not belonging to the current player never gets its own tile back
+		int count = controller.getValidMoves(e, moves);
+		assertEquals(count, Integer.bitCount(controller.getValidMoveMask(e)));
+		for (int i = 0; i < count; i++)
+			assertFalse(moves[i] == 4 * size + 5);
+		// occupants are friendly or not to the player whose turn it is, not to the unit
+		assertEquals(controller.getValidMoveMask(e) & 1 << 4, 0);
+
+		// the edges of the board
+		Militia corner = new Militia(human, new Point(0, 0));
+		model.getTileAt(0, 0).setUnit(corner);
+		assertEquals(controller.getValidMoveMask(corner), 1 << 4 | 1 << 6 | 1 << 7);
+		assertEquals(controller.getValidMoves(corner, moves), 3);
+		assertEquals(moves[0], size);
+		assertEquals(moves[1], 1);
+		assertEquals(moves[2], size + 1);
+		Militia far = new Militia(human, new Point(size - 1, size - 1));
+		model.getTileAt(size - 1, size - 1).setUnit(far);
+		assertEquals(controller.getValidMoveMask(far), 1 << 0 | 1 << 1 | 1 << 3);
+		Militia side = new Militia(human, new Point(size - 1, 3));
+		model.getTileAt(size - 1, 3).setUnit(side);
+		assertEquals(controller.getValidMoveMask(side), 1 << 0 | 1 << 1 | 1 << 2 | 1 << 3 | 1 << 4);
+	}
 }
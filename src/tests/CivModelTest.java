@@ -1,14 +1,37 @@
 package tests;
 
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
 import org.junit.jupiter.api.Test;
 
+import components.Tile;
+import controllers.CivController;
 import models.CivBoard;
 import models.CivModel;
+import models.EventBus;
+import models.GameEvent;
 import models.Player;
+import models.SaveSlots;
+import simulation.HeadlessGame;
 
 /**
  * Tests the methods of CivModel.
@@ -60,4 +83,238 @@ public class CivModelTest {
 		assertTrue(model.removePlayer(model.getCurPlayer()));
 	}
 
+	@Test
+	/**
+	 * Test that two games played from the same seed end in byte for byte the same
+	 * state, and that the seed decides the map.
+	 */
+	void testSeededGamesRepeat() throws Exception {
+		byte[][] saves = new byte[2][];
+		for (int i = 0; i < 2; i++) {
+			HeadlessGame game = new HeadlessGame(4, 24, 3, 1234, 40);
+			game.play();
+			ByteArrayOutputStream out = new ByteArrayOutputStream();
+			game.getModel().writeGame(Channels.newChannel(out), 0);
+			saves[i] = out.toByteArray();
+		}
+		assertArrayEquals(saves[0], saves[1]);
+
+		CivBoard a = new CivBoard(30, 77);
+		CivBoard b = new CivBoard(30, 77);
+		CivBoard c = new CivBoard(30, 78);
+		boolean differs = false;
+		for (int x = 0; x < 30; x++) {
+			for (int y = 0; y < 30; y++) {
+				assertEquals(a.getTile(x, y).getTerrainType(), b.getTile(x, y).getTerrainType());
+				assertEquals(a.getTile(x, y).getResourceType(), b.getTile(x, y).getResourceType());
+				differs |= a.getTile(x, y).getTerrainType() != c.getTile(x, y).getTerrainType();
+			}
+		}
+		assertTrue(differs);
+	}
+
+	@Test
+	/**
+	 * Test that a game saved in the binary format loads back into the same state,
+	 * that saving leaves the game untouched, and that damaged saves are refused.
+	 */
+	void testBinarySave() throws Exception {
+		HeadlessGame game = new HeadlessGame(4, 30, 4, 99, 25);
+		game.play();
+		CivModel model = game.getModel();
+		int round = model.roundNumber();
+		Player current = model.getCurPlayer();
+		Path file = Files.createTempFile("binary", ".dat");
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+			model.writeGame(channel, 0);
+		}
+		assertEquals(model.roundNumber(), round);
+		assertTrue(model.getCurPlayer() == current);
+
+		CivModel loaded = new CivModel(file);
+		assertEquals(loaded.roundNumber(), round);
+		assertEquals(loaded.numPlayers(), model.numPlayers());
+		assertEquals(loaded.getSeed(), model.getSeed());
+		assertEquals(loaded.getCurPlayer().getID(), current.getID());
+		ByteArrayOutputStream before = new ByteArrayOutputStream();
+		ByteArrayOutputStream after = new ByteArrayOutputStream();
+		model.writeGame(Channels.newChannel(before), 0);
+		loaded.writeGame(Channels.newChannel(after), 0);
+		assertArrayEquals(before.toByteArray(), after.toByteArray());
+
+		// cut the save short
+		byte[] save = Files.readAllBytes(file);
+		Files.write(file, Arrays.copyOf(save, save.length / 2));
+		assertThrows(NullPointerException.class, () -> new CivModel(file));
+		Files.delete(file);
+	}
+
+	/**
+	 * Tests that compressed and uncompressed saves of the same game both load back to
+	 * the same game, and that compression makes the save smaller.
+	 */
+	@Test
+	void testCompressedSave() throws Exception {
+		HeadlessGame game = new HeadlessGame(4, 60, 2, 7, 10);
+		game.play();
+		CivModel model = game.getModel();
+		ByteArrayOutputStream plain = new ByteArrayOutputStream();
+		model.writeGame(Channels.newChannel(plain), 0);
+		model.setSaveCompression(true);
+		ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+		model.writeGame(Channels.newChannel(compressed), 0);
+		assertTrue(compressed.size() < plain.size() / 2);
+		assertArrayEquals(new CivModel(compressed.toByteArray()).snapshot(0), model.snapshot(0));
+		assertArrayEquals(new CivModel(plain.toByteArray()).snapshot(0), model.snapshot(0));
+
+		byte[] damaged = compressed.toByteArray();
+		damaged[damaged.length / 2] ^= 0x55;
+		assertThrows(IOException.class, () -> new CivModel(damaged));
+	}
+
+	/**
+	 * Tests that save slots are listed newest first from the index alone, that the
+	 * index notices saves changed or removed behind its back and is rebuilt when lost,
+	 * and that a chosen slot loads the game saved in it.
+	 */
+	@Test
+	void testSaveSlots() throws Exception {
+		Path dir = Files.createTempDirectory("slots");
+		SaveSlots slots = new SaveSlots(dir);
+		assertTrue(slots.list().isEmpty());
+		HeadlessGame game = new HeadlessGame(4, 20, 2, 3, 4);
+		game.play();
+		CivModel model = game.getModel();
+		SaveSlots.Slot first = slots.save("first", model);
+		assertEquals(first.header.round, model.roundNumber());
+		assertEquals(first.header.size, 20);
+		assertEquals(first.header.players, 2);
+		Thread.sleep(5); // so the saves' times differ
+		game = new HeadlessGame(3, 0, 2, 3, 6);
+		game.play();
+		slots.save("second", game.getModel());
+
+		List<SaveSlots.Slot> listed = slots.list();
+		assertEquals(listed.size(), 2);
+		assertEquals(listed.get(0).name, "second");
+		assertEquals(listed.get(0).header.map, 3);
+		assertEquals(listed.get(1).name, "first");
+		assertEquals(slots.load(listed.get(0)).roundNumber(), game.getModel().roundNumber());
+
+		// saves changed, removed and added without the index, then the index lost
+		Files.delete(dir.resolve("first" + SaveSlots.EXTENSION));
+		Files.copy(dir.resolve("second" + SaveSlots.EXTENSION), dir.resolve("third" + SaveSlots.EXTENSION));
+		Files.write(dir.resolve("junk" + SaveSlots.EXTENSION), new byte[] { 1, 2, 3 });
+		listed = slots.list();
+		assertEquals(listed.size(), 2);
+		assertTrue(listed.stream().noneMatch(slot -> slot.name.equals("first")));
+		Files.delete(dir.resolve(SaveSlots.INDEX));
+		assertEquals(slots.list().size(), 2);
+		assertTrue(Files.exists(dir.resolve(SaveSlots.INDEX)));
+
+		assertEquals(SaveSlots.slotName("Round 3, 10/18 12:00"), "Round 3, 10_18 12_00");
+		try (DirectoryStream<Path> files = Files.newDirectoryStream(dir)) {
+			for (Path f : files)
+				Files.delete(f);
+		}
+		Files.delete(dir);
+	}
+
+	/**
+	 * Tests that a large board loaded from an uncompressed save file, whose tiles are
+	 * paged in as they are used, holds the same tiles as the game that was saved,
+	 * whether its pages are used one at a time or all at once.
+	 */
+	@Test
+	void testPagedLoad() throws Exception {
+		CivModel model = new CivModel(2, 4, 600, 21);
+		CivController controller = new CivController(model);
+		controller.placeStartingUnits();
+		controller.setRoundLimit(model.roundNumber() + 3);
+		controller.startTurn();
+		Path file = Files.createTempFile("paged", ".dat");
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+			model.writeGame(channel, 0);
+		}
+		CivModel loaded = new CivModel(file);
+		for (int i = 0; i < 1000; i++) {
+			int x = (i * 7919) % 600, y = (i * 104729) % 600;
+			Tile a = model.getTileAt(x, y), b = loaded.getTileAt(x, y);
+			assertEquals(b.getTerrainType(), a.getTerrainType());
+			assertEquals(b.getResourceType(), a.getResourceType());
+			assertEquals(b.isCityTile(), a.isCityTile());
+			assertEquals(b.getOwnerCity() == null, a.getOwnerCity() == null);
+		}
+		assertArrayEquals(loaded.snapshot(0), model.snapshot(0));
+		loaded.getCivBoard().pageInAll(); // done with the file, so it can be deleted
+		loaded = null;
+		System.gc(); // the mapping lasts until collected, see SaveReader.map()
+		Files.delete(file);
+	}
+
+	/**
+	 * Tests that events reach only the listeners of their kind, in the order they were
+	 * published, whether listeners run on the game's thread or their own executor, and
+	 * that a full queue drops or holds up events as its listener asked.
+	 */
+	@Test
+	void testEventBus() throws Exception {
+		CivModel model = new CivModel(2, 4, 20, 5);
+		CivController controller = new CivController(model);
+		controller.placeStartingUnits();
+		EventBus events = model.getEvents();
+		int[] founded = new int[1], destroyed = new int[1];
+		List<GameEvent.TurnStarted> turns = new ArrayList<GameEvent.TurnStarted>();
+		List<GameEvent> all = new ArrayList<GameEvent>();
+		events.subscribe(GameEvent.CityFounded.class, e -> founded[0]++);
+		events.subscribe(GameEvent.CityDestroyed.class, e -> destroyed[0]++);
+		events.subscribe(GameEvent.TurnStarted.class, turns::add);
+		EventBus.Subscription<GameEvent> everything = events.subscribe(GameEvent.class, all::add);
+		int round = model.roundNumber();
+		controller.setRoundLimit(round + 5);
+		controller.startTurn();
+		int cities = 0;
+		for (Player p : model.getAllPlayers())
+			cities += p.getCities().size();
+		assertTrue(founded[0] > 0);
+		assertEquals(founded[0] - destroyed[0], cities);
+		assertEquals(turns.size(), 10);
+		assertEquals(turns.get(0).round, round);
+		assertEquals(turns.get(9).round, round + 4);
+		assertTrue(all.size() > turns.size() + founded[0]);
+		everything.cancel();
+		model.nextPlayer();
+		controller.startTurn();
+		assertEquals(turns.size(), 11);
+		assertFalse(all.contains(turns.get(10)));
+
+		// on an executor, in order
+		ExecutorService executor = Executors.newSingleThreadExecutor();
+		List<Integer> rounds = new ArrayList<Integer>();
+		events.subscribe(GameEvent.TurnStarted.class, e -> rounds.add(e.round), executor, 4, EventBus.Overflow.BLOCK);
+		for (int i = 0; i < 1000; i++)
+			events.publish(new GameEvent.TurnStarted(model.getCurPlayer(), i));
+		executor.shutdown();
+		assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+		assertEquals(rounds.size(), 1000);
+		for (int i = 0; i < 1000; i++)
+			assertEquals(rounds.get(i), i);
+
+		// a listener that never gets to run drops what does not fit its queue
+		List<Runnable> tasks = new ArrayList<Runnable>();
+		List<GameEvent> slow = new ArrayList<GameEvent>();
+		EventBus bus = new EventBus();
+		EventBus.Subscription<GameEvent.CityFounded> dropping = bus.subscribe(GameEvent.CityFounded.class,
+				slow::add, tasks::add, 2, EventBus.Overflow.DROP);
+		for (int i = 0; i < 5; i++)
+			bus.publish(new GameEvent.CityFounded(null));
+		assertEquals(dropping.getDropped(), 3L);
+		assertEquals(tasks.size(), 1);
+		tasks.remove(0).run();
+		assertEquals(slow.size(), 2);
+		assertFalse(bus.hasSubscribers(GameEvent.UnitMoved.class));
+		dropping.cancel();
+		assertFalse(bus.hasSubscribers(GameEvent.CityFounded.class));
+	}
+
 }
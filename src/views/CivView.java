@@ -3,13 +3,20 @@ package views;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.text.SimpleDateFormat;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Date;
 import java.util.HashMap;
-import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
-import java.util.Observable;
-import java.util.Observer;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
 
 import components.Cavalry;
 import components.City;
@@ -20,6 +27,8 @@ import components.Swordsman;
 import components.Tile;
 import components.Unit;
 import controllers.CivController;
+import controllers.Journal;
+import controllers.TurnListener;
 import javafx.animation.Animation;
 import javafx.animation.FadeTransition;
 import javafx.animation.Interpolator;
@@ -32,6 +41,7 @@ import javafx.event.ActionEvent;
 import javafx.event.EventHandler;
 import javafx.geometry.Insets;
 import javafx.geometry.Pos;
+import javafx.scene.Group;
 import javafx.scene.Node;
 import javafx.scene.Scene;
 import javafx.scene.canvas.Canvas;
@@ -63,8 +73,15 @@ import javafx.scene.text.Text;
 import javafx.scene.text.TextFlow;
 import javafx.stage.Stage;
 import javafx.util.Duration;
+import models.Autosave;
+import models.CivBoard;
 import models.CivModel;
+import models.FogOfWar;
+import models.GameEvent;
+import models.ModelChange;
 import models.Player;
+import models.SaveHeader;
+import models.SaveSlots;
 
 /**
  * 
@@ -75,8 +92,7 @@ import models.Player;
  *
  * @author Tim Gavlick, Connie Sun, Ryan Smith
  */
-@SuppressWarnings("deprecation")
-public class CivView extends Application implements Observer {
+public class CivView extends Application {
 
 	// game data + controller
 	private CivController controller;
@@ -86,6 +102,8 @@ public class CivView extends Application implements Observer {
 	private int mapSize;
 	private boolean isNewGame;
 	private Player prevPlayer;
+	private ExecutorService turnWorker; // plays turns off the JavaFX thread
+	private volatile boolean playingTurns; // the model belongs to turnWorker while set
 
 	// map hooks
 	private ScrollPane mapScrollContainer;
@@ -100,13 +118,17 @@ public class CivView extends Application implements Observer {
 
 	// sprite hooks
 	private Pane spriteContainer;
+	private Map<Integer, Group> tileSprites; // sprites of each occupied tile, by board index
 	private Map<String, Image> spriteImages;
+	private ModelChange pendingChange; // changes not drawn yet, null if none
+	private final Object changeLock = new Object(); // guards pendingChange
 
 	// ui hooks
 	private VBox unitPane;
 	private Unit selectedUnit;
 	private ScrollPane cityPane;
 	private City selectedCity;
+	private final int[] moveBuffer = new int[8];
 	private GridPane playersContainer;
 
 	// viz constants
@@ -137,9 +159,17 @@ public class CivView extends Application implements Observer {
 
 	public void startGame(Stage stage) {
 		this.controller = new CivController(model);
+		model.setSaveCompression(true); // saved once on close, and kept for a long time
+		controller.setAutosave(new Autosave(Paths.get(CivModel.AUTOSAVE_FILE)), 1);
 		this.spriteImages = new HashMap<>();
+		this.tileSprites = new HashMap<>();
 
-		model.addObserver(this);
+		model.getEvents().subscribe(GameEvent.ModelChanged.class, this::update);
+		turnWorker = Executors.newSingleThreadExecutor(r -> {
+			Thread thread = new Thread(r, "turns");
+			thread.setDaemon(true);
+			return thread;
+		});
 
 		// calculate derived constants (less spaghetti later on)
 		isoBoardWidth = model.getSize() * TILE_SIZE;
@@ -156,6 +186,8 @@ public class CivView extends Application implements Observer {
 		if (isNewGame)
 			controller.placeStartingUnits();
 		renderAllSprites();
+		renderFog();
+		updatePlayers();
 
 		// focus the map on any friendly unit so the starting player isn't lost
 		// in fog
@@ -168,6 +200,8 @@ public class CivView extends Application implements Observer {
 		stage.setTitle("Sid Meier's Civilization 0.5");
 
 		// add global events
+		scene.addEventFilter(MouseEvent.MOUSE_CLICKED, this::ignoreWhilePlaying);
+		scene.addEventFilter(MouseEvent.MOUSE_MOVED, this::ignoreWhilePlaying);
 		mapCanvas.setOnMouseClicked(this::handleMapClick);
 		mapCanvas.setOnMouseMoved(this::handleMapHover);
 		scene.addEventFilter(KeyEvent.KEY_PRESSED, (KeyEvent ev) -> {
@@ -178,6 +212,12 @@ public class CivView extends Application implements Observer {
 		});
 		// handle WindowClose event
 		stage.setOnCloseRequest(ev -> {
+			turnWorker.shutdown(); // let the turns being played finish first
+			try {
+				turnWorker.awaitTermination(1, TimeUnit.MINUTES);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
 			boolean saved = controller.close(); // serialize board
 			String msg;
 			if (saved) {
@@ -192,7 +232,12 @@ public class CivView extends Application implements Observer {
 			Platform.exit();
 			System.exit(0);
 		});
-		controller.startTurn(); // begin the game
+		try { // record the game from here on, so closing it costs next to nothing
+			controller.setJournal(new Journal(Paths.get(CivModel.JOURNAL_FILE), model), 10);
+		} catch (IOException e) {
+			e.printStackTrace(); // saved in full on close instead
+		}
+		playTurns(controller::startTurn); // begin the game
 		mapCanvas.setOnMouseClicked(this::handleMapClick);
 		mapCanvas.setOnMouseMoved(this::handleMapHover);
 		scene.addEventFilter(KeyEvent.KEY_PRESSED, (KeyEvent ev) -> {
@@ -256,16 +301,73 @@ public class CivView extends Application implements Observer {
 	}
 
 	/**
-	 * Update the UI when the model changes.
+	 * Update the UI when the model changes. Changes that arrive before the next
+	 * frame are merged and drawn together.
 	 *
-	 * @param observable The observable that's been updated
-	 * @param o          Arbitrary data
+	 * @param event ModelChanged event holding what changed
 	 */
-	@Override
-	public void update(Observable observable, Object o) {
-		renderAllSprites();
-		renderFog();
-		updatePlayers();
+	private void update(GameEvent.ModelChanged event) {
+		synchronized (changeLock) {
+			if (pendingChange != null) {
+				pendingChange.merge(event.change);
+				return;
+			}
+			pendingChange = event.change;
+		}
+		Platform.runLater(this::drawChange);
+	}
+
+	/**
+	 * Play turns on the turn worker, so the computer's turns do not freeze the
+	 * window. Until they are over the map and panes ignore the mouse, and the view
+	 * only reads the model once their change has been published.
+	 *
+	 * @param turns Runnable playing the turns, such as controller::endTurn
+	 */
+	private void playTurns(Runnable turns) {
+		drawChange(); // the worker may change the model as soon as it starts
+		playingTurns = true;
+		deselect();
+		turnWorker.execute(() -> {
+			try {
+				turns.run();
+			} catch (RuntimeException e) {
+				e.printStackTrace();
+			} finally {
+				// queued behind the drawing of the turns' change
+				Platform.runLater(() -> playingTurns = false);
+			}
+		});
+	}
+
+	/**
+	 * Drop mouse input meant for the map or panes while turns are being played.
+	 *
+	 * @param ev The MouseEvent to drop
+	 */
+	private void ignoreWhilePlaying(MouseEvent ev) {
+		if (playingTurns)
+			ev.consume();
+	}
+
+	/**
+	 * Redraw what changed since the last frame: the sprites of dirty tiles only, the
+	 * fog if it was revealed or the turn passed, and the player readouts if any
+	 * player's units or cities changed.
+	 */
+	private void drawChange() {
+		ModelChange change;
+		synchronized (changeLock) {
+			change = pendingChange;
+			pendingChange = null;
+		}
+		if (change == null) // already drawn by playTurns()
+			return;
+		renderSprites(change.getTiles());
+		if (change.fogChanged() || change.turnChanged())
+			renderFog();
+		if (change.turnChanged() || !change.getPlayers().isEmpty())
+			updatePlayers();
 
 		// update selectedUnit/selectedCity if they died in previous turn
 		if (selectedUnit != null && selectedUnit.getHP() <= 0) {
@@ -447,29 +549,97 @@ public class CivView extends Application implements Observer {
 	private void renderAllSprites() {
 		clearAllSprites();
 		for (int[] space : getDrawTraversal()) {
-			Tile tile = model.getTileAt(space[0], space[1]);
-			if (tile == null)
-				continue;
+			Group sprites = renderTile(space[0], space[1]);
+			if (sprites != null)
+				spriteContainer.getChildren().add(sprites);
+		}
+	}
+
+	/**
+	 * Render again the sprites of the given tiles only, leaving the rest of the
+	 * sprite layer as it is.
+	 *
+	 * @param tiles BitSet of the board index of every tile to render
+	 */
+	private void renderSprites(BitSet tiles) {
+		int size = model.getSize();
+		for (int i = tiles.nextSetBit(0); i >= 0; i = tiles.nextSetBit(i + 1)) {
+			Group old = tileSprites.remove(i);
+			if (old != null)
+				spriteContainer.getChildren().remove(old);
+			Group sprites = renderTile(i % size, i / size);
+			if (sprites != null)
+				spriteContainer.getChildren().add(drawIndex(sprites), sprites);
+		}
+	}
 
-			City city = null;
-			if (tile.isCityTile())
-				city = tile.getOwnerCity();
-			Unit unit = tile.getUnit();
+	/**
+	 * Render the city and unit on a tile into a group of their own.
+	 *
+	 * @param x int of the tile's x location
+	 * @param y int of the tile's y location
+	 * @return the Group of sprites, or null if there is nothing on the tile
+	 */
+	private Group renderTile(int x, int y) {
+		Tile tile = model.getTileAt(x, y);
+		if (tile == null)
+			return null;
 
-			if (city != null)
-				renderCity(city);
-			if (unit != null)
-				renderUnit(unit);
+		City city = null;
+		if (tile.isCityTile())
+			city = tile.getOwnerCity();
+		Unit unit = tile.getUnit();
+		if (city == null && unit == null)
+			return null;
+
+		Group sprites = new Group();
+		sprites.setUserData(drawRank(x, y));
+		if (city != null)
+			renderCity(city, sprites);
+		if (unit != null)
+			renderUnit(unit, sprites);
+		tileSprites.put(y * model.getSize() + x, sprites);
+		return sprites;
+	}
+
+	/**
+	 * Position of a tile in getDrawTraversal(), which draws diagonal slices of
+	 * equal x + y from the top, each from left to right.
+	 */
+	private long drawRank(int x, int y) {
+		return (long) (x + y) * model.getSize() + x;
+	}
+
+	/**
+	 * Find where a tile's sprites belong among the sprite layer so that tiles
+	 * further down the map are drawn over those above them.
+	 *
+	 * @param sprites Group made by renderTile()
+	 * @return int index in spriteContainer's children to insert it at
+	 */
+	private int drawIndex(Group sprites) {
+		List<Node> drawn = spriteContainer.getChildren();
+		long rank = (Long) sprites.getUserData();
+		int low = 0;
+		int high = drawn.size();
+		while (low < high) {
+			int mid = (low + high) >>> 1;
+			if ((Long) drawn.get(mid).getUserData() < rank)
+				low = mid + 1;
+			else
+				high = mid;
 		}
+		return low;
 	}
 
 	/**
 	 * Render a single city to the map.
 	 *
-	 * @param city The city to render. Position will be derived from the City's
-	 *             stored coords
+	 * @param city    The city to render. Position will be derived from the City's
+	 *                stored coords
+	 * @param sprites The group of its tile's sprites to add it to
 	 */
-	private void renderCity(City city) {
+	private void renderCity(City city, Group sprites) {
 		int[] coords = gridToIso(city.getX(), city.getY());
 
 		ImageView cityImageView = new ImageView(
@@ -480,18 +650,19 @@ public class CivView extends Application implements Observer {
 		cityImageView.setMouseTransparent(true);
 		cityImageView.setX(coords[0] + ((TILE_SIZE - CITY_SIZE) / 2.0));
 		cityImageView.setY(coords[1] - 34.0); // Magic Number, for now
-		spriteContainer.getChildren().add(cityImageView);
+		sprites.getChildren().add(cityImageView);
 
-		renderSpriteHPBar(city.getRemainingHP(), city.getMaxHP(), coords[0], coords[1] + 6);
+		renderSpriteHPBar(city.getRemainingHP(), city.getMaxHP(), coords[0], coords[1] + 6, sprites);
 	}
 
 	/**
 	 * Render a single unit to the map.
 	 *
-	 * @param unit The unit to render. Position will be derived from the Unit's
-	 *             stored coords
+	 * @param unit    The unit to render. Position will be derived from the Unit's
+	 *                stored coords
+	 * @param sprites The group of its tile's sprites to add it to
 	 */
-	private void renderUnit(Unit unit) {
+	private void renderUnit(Unit unit, Group sprites) {
 		String player = cssClassFrom(unit.getOwner().getID());
 		int[] coords = gridToIso(unit.getX(), unit.getY());
 
@@ -515,25 +686,26 @@ public class CivView extends Application implements Observer {
 		unitImageView.setMouseTransparent(true);
 		unitImageView.setX(coords[0] + ((TILE_SIZE - SPRITE_SIZE) / 2.0));
 		unitImageView.setY(coords[1] - (SPRITE_SIZE / 4.0));
-		spriteContainer.getChildren().add(unitImageView);
+		sprites.getChildren().add(unitImageView);
 
-		renderSpriteHPBar(unit.getHP(), unit.getMaxHP(), coords[0], coords[1]);
+		renderSpriteHPBar(unit.getHP(), unit.getMaxHP(), coords[0], coords[1], sprites);
 	}
 
 	/**
 	 * Place an inline HP bar above a certain map square
 	 *
-	 * @param cur The unit or city's current hp
-	 * @param max The unit or city's max hp
-	 * @param x   The left iso coord of the space to render on
-	 * @param y   The top iso coord of the space to render on
+	 * @param cur     The unit or city's current hp
+	 * @param max     The unit or city's max hp
+	 * @param x       The left iso coord of the space to render on
+	 * @param y       The top iso coord of the space to render on
+	 * @param sprites The group of the space's sprites to add it to
 	 */
-	private void renderSpriteHPBar(double cur, double max, int x, int y) {
+	private void renderSpriteHPBar(double cur, double max, int x, int y, Group sprites) {
 		GridPane hpBar = createHPBar(cur, max);
 		hpBar.setPrefWidth(TILE_SIZE / 2.0);
 		hpBar.setLayoutX(x + TILE_SIZE / 4.0);
 		hpBar.setLayoutY(y + (TILE_SIZE * ISO_FACTOR) / 1.35);
-		spriteContainer.getChildren().add(hpBar);
+		sprites.getChildren().add(hpBar);
 	}
 
 	/**
@@ -541,6 +713,7 @@ public class CivView extends Application implements Observer {
 	 */
 	private void clearAllSprites() {
 		spriteContainer.getChildren().clear();
+		tileSprites.clear();
 		System.gc();
 	}
 
@@ -551,6 +724,7 @@ public class CivView extends Application implements Observer {
 	private void renderFog() {
 		GraphicsContext context = fogCanvas.getGraphicsContext2D();
 		Player player = model.getCurPlayer();
+		FogOfWar fog = model.getFog();
 		int size = model.getSize();
 
 		context.clearRect(0, 0, isoBoardWidth, isoBoardHeight);
@@ -559,8 +733,8 @@ public class CivView extends Application implements Observer {
 			return;
 
 		for (int[] coords : getDrawTraversal()) {
-			Tile tile = model.getTileAt(coords[0], coords[1]);
-			if (tile == null || tile.canSeeTile(player))
+			if (coords[0] < 0 || coords[0] >= size || coords[1] < 0 || coords[1] >= size
+					|| fog.isRevealed(player, coords[0], coords[1]))
 				continue;
 
 			// since we want some continuity to our fog but also want a little
@@ -569,23 +743,24 @@ public class CivView extends Application implements Observer {
 			// directions stemming from this tile: up, right, down, left. A 1
 			// in these places means to connect the fog in that direction (or
 			// it's at the edge of the board)
-			char[] imageDirs = { '0', '0', '0', '0' };
-
-			// up
-			if (coords[1] <= 0 || !model.getTileAt(coords[0], coords[1] - 1).canSeeTile(player)) {
-				imageDirs[0] = '1';
-			}
-			// right
-			if (coords[0] >= size - 1 || !model.getTileAt(coords[0] + 1, coords[1]).canSeeTile(player)) {
-				imageDirs[1] = '1';
-			}
-			// down
-			if (coords[1] >= size - 1 || !model.getTileAt(coords[0], coords[1] + 1).canSeeTile(player)) {
-				imageDirs[2] = '1';
-			}
-			// left
-			if (coords[0] <= 0 || !model.getTileAt(coords[0] - 1, coords[1]).canSeeTile(player)) {
-				imageDirs[3] = '1';
+			char[] imageDirs = { '1', '1', '1', '1' };
+
+			// deep in the fog nothing around this tile is revealed, so every
+			// direction connects and the per-direction checks can be skipped.
+			// Off-board tiles are never revealed, so they connect as well
+			if (fog.anyRevealed(player, coords[0] - 1, coords[1] - 1, coords[0] + 1, coords[1] + 1)) {
+				// up
+				if (fog.isRevealed(player, coords[0], coords[1] - 1))
+					imageDirs[0] = '0';
+				// right
+				if (fog.isRevealed(player, coords[0] + 1, coords[1]))
+					imageDirs[1] = '0';
+				// down
+				if (fog.isRevealed(player, coords[0], coords[1] + 1))
+					imageDirs[2] = '0';
+				// left
+				if (fog.isRevealed(player, coords[0] - 1, coords[1]))
+					imageDirs[3] = '0';
 			}
 
 			// draw the thing
@@ -611,23 +786,9 @@ public class CivView extends Application implements Observer {
 		// we're iterating on corners, not tiles, so inclusive high bound
 		for (int x = 0; x <= model.getSize(); x++) {
 			for (int y = 0; y <= model.getSize(); y++) {
-				// search each tile touching this gap on its diagonals
-				int diags = 0;
-
-				// top left
-				if (x == 0 || y == 0 || !model.getTileAt(x - 1, y - 1).canSeeTile(player))
-					diags++;
-				// top right
-				if (x >= size || y == 0 || !model.getTileAt(x, y - 1).canSeeTile(player))
-					diags++;
-				// bottom right
-				if (x >= size || y >= size || !model.getTileAt(x, y).canSeeTile(player))
-					diags++;
-				// bottom left
-				if (x == 0 || y >= size || !model.getTileAt(x - 1, y).canSeeTile(player))
-					diags++;
-
-				if (diags == 4) {
+				// the gap needs filling when none of the (up to) four tiles
+				// touching it on its diagonals have been revealed
+				if (!fog.anyRevealed(player, x - 1, y - 1, x, y)) {
 					int[] coords = gridToIso(x, y);
 					context.fillOval(
 							coords[0] + TILE_SIZE / 2.0 - radius / 2.0,
@@ -655,12 +816,15 @@ public class CivView extends Application implements Observer {
 			if (player == model.getCurPlayer()) {
 				Button endTurnButton = new Button("End Turn");
 				endTurnButton.getStyleClass().addAll("button", "end-turn-button");
-				playersContainer.add(endTurnButton, i, 0);
 				endTurnButton.setOnMouseClicked(ev -> {
-					if (controller.isHumanTurn()) {
-						controller.endTurn();
+					if (!playingTurns && controller.isHumanTurn()) {
+						playTurns(controller::endTurn);
 					}
 				});
+				Button saveButton = new Button("Save");
+				saveButton.getStyleClass().addAll("button", "end-turn-button");
+				saveButton.setOnMouseClicked(ev -> saveToSlot());
+				playersContainer.add(new HBox(endTurnButton, saveButton), i, 0);
 			}
 
 			// add player name readout
@@ -1116,14 +1280,15 @@ public class CivView extends Application implements Observer {
 	 * @param unit The unit to indicate valid moves for
 	 */
 	private void addRangeIndicators(Unit unit) {
-		HashSet<int[]> validMoves = controller.getValidMoves(unit);
+		int moveCount = controller.getValidMoves(unit, moveBuffer);
 
 		mapOverlayContainer.getChildren().clear();
 
-		for (int[] move : validMoves) {
-			int[] coords = gridToIso(move[0], move[1]);
+		for (int i = 0; i < moveCount; i++) {
+			int moveX = moveBuffer[i] % model.getSize(), moveY = moveBuffer[i] / model.getSize();
+			int[] coords = gridToIso(moveX, moveY);
 			ImageView markerView;
-			Tile moveTile = controller.getTileAt(move[0], move[1]);
+			Tile moveTile = controller.getTileAt(moveX, moveY);
 			// indicate if there's an attackable unit or city in the space
 			if ((moveTile.getUnit() != null && moveTile.getUnit().getOwner() != model.getCurPlayer()) ||
 					(moveTile.isCityTile() && moveTile.getOwnerCity().getOwner() != model.getCurPlayer())) {
@@ -1494,7 +1659,7 @@ public class CivView extends Application implements Observer {
 		loadGame.getStyleClass().addAll("button", "detail-pane__button");
 		loadGame.setOnAction(ev -> {
 			isNewGame = false;
-			attemptLoadGame(stage);
+			loadMenu(stage);
 		});
 		Button exit = new Button("Exit");
 		exit.getStyleClass().addAll("button", "detail-pane__button");
@@ -1522,7 +1687,7 @@ public class CivView extends Application implements Observer {
 	}
 	/**
 	 * newGameMapSelection builds the menu for map selection when the user selects
-	 * 	New Game from the Main Menu. This includes .png previews of our Maps, a button for
+	 * 	New Game from the Main Menu. This includes previews of our Maps, a button for
 	 * 	each map and a text element informing the User how many players each Map supports.
 	 * 	It also includes a "return to menu" button that will redraw our Main Menu.
 	 * @param stage our primary stage for our javafx environment
@@ -1597,11 +1762,23 @@ public class CivView extends Application implements Observer {
 			queryMapSize(stage);
 		});
 		col4.getChildren().addAll(canvas4, map4, label4);
+		VBox col5 = new VBox();
+		Button map5 = new Button("Map 5");
+		Text label5 = new Text("  2-4 Players");
+		Canvas canvas5 = new Canvas(110, 110);
+		drawMap5Preview(canvas5.getGraphicsContext2D());
+		map5.getStyleClass().addAll("button", "detail-pane__button");
+		map5.setOnAction(ev -> {
+			mapNum = 5;
+			queryMapSize(stage);
+		});
+		col5.getChildren().addAll(canvas5, map5, label5);
 		col1.setSpacing(10);
 		col2.setSpacing(10);
 		col3.setSpacing(10);
 		col4.setSpacing(10);
-		mapSelection.getChildren().addAll(col1, col2, col3, col4);
+		col5.setSpacing(10);
+		mapSelection.getChildren().addAll(col1, col2, col3, col4, col5);
 		BackgroundImage myBI = new BackgroundImage(new Image("file:./src/views/background.jpg",32,32,false,true),
 		        BackgroundRepeat.REPEAT, BackgroundRepeat.REPEAT, BackgroundPosition.DEFAULT,
 		          BackgroundSize.DEFAULT);
@@ -1621,15 +1798,130 @@ public class CivView extends Application implements Observer {
 		stage.show();
 	}
 	/**
-	 * attemptLoadGame() is called when the User clicks the "Load Game" button on
-	 * 	our Main Menu. If it cannot load a game, it displays an Alert indicating
+	 * drawMap5Preview() draws a small Map 5 board, two pixels per tile, as the
+	 * 	preview of Map 5. Map 5 is generated from noise, so there is no fixed image
+	 * 	of it; this one is always drawn from the same seed.
+	 * @param context GraphicsContext of a 110 x 110 canvas
+	 */
+	private void drawMap5Preview(GraphicsContext context) {
+		List<int[]> starts = Arrays.asList(new int[] { 1, 1 }, new int[] { 53, 53 }, new int[] { 53, 1 },
+				new int[] { 1, 53 });
+		CivBoard board = new CivBoard(55, 5, starts);
+		for (int x = 0; x < 55; x++) {
+			for (int y = 0; y < 55; y++) {
+				Tile.terrainTypes type = board.getTile(x, y).getTerrainType();
+				if (type == Tile.terrainTypes.WATER)
+					context.setFill(Color.STEELBLUE);
+				else if (type == Tile.terrainTypes.MOUNTAIN)
+					context.setFill(Color.DIMGRAY);
+				else if (type == Tile.terrainTypes.HILL)
+					context.setFill(Color.DARKKHAKI);
+				else if (type == Tile.terrainTypes.SWAMP)
+					context.setFill(Color.DARKOLIVEGREEN);
+				else
+					context.setFill(Color.YELLOWGREEN);
+				context.fillRect(x * 2, y * 2, 2, 2);
+			}
+		}
+	}
+	/**
+	 * saveToSlot() saves the game to a new save slot named after the round and the
+	 * 	time, and tells the User whether it worked.
+	 */
+	private void saveToSlot() {
+		String name = SaveSlots.slotName("Round " + model.roundNumber() + ", "
+				+ new SimpleDateFormat("yyyy-MM-dd HH-mm-ss").format(new Date()));
+		Alert saved = new Alert(Alert.AlertType.INFORMATION);
+		try {
+			new SaveSlots(Paths.get(SaveSlots.DIRECTORY)).save(name, model);
+			saved.setContentText("Game saved as " + name + ".");
+		} catch (IOException e) {
+			e.printStackTrace();
+			saved.setContentText("Game state was not saved");
+		}
+		saved.showAndWait();
+	}
+	/**
+	 * loadMenu() builds the menu shown when the User clicks the "Load Game" button on
+	 * 	our Main Menu. It lists every save slot from the index of their headers, newest
+	 * 	first, so nothing is loaded until a slot is clicked. "Continue Last Game" loads
+	 * 	the game that was open when the window was last closed. Also contains our
+	 * 	Return to Menu Button
+	 * @param stage our primary stage for our javafx environment
+	 */
+	private void loadMenu(Stage stage) {
+		BorderPane Window = new BorderPane();
+		Scene scene = new Scene(Window, WINDOW_WIDTH, WINDOW_HEIGHT);
+		scene.getStylesheets().add("assets/CivView.css");
+		stage.setScene(scene);
+		stage.setTitle("Sid Meier's Civilization 0.5");
+		VBox slotSelection = new VBox();
+		slotSelection.setPadding(new Insets(20, 20, 20, 20));
+		slotSelection.setSpacing(10);
+		slotSelection.setAlignment(Pos.CENTER);
+		Button lastGame = new Button("Continue Last Game");
+		lastGame.setOnAction(ev -> attemptLoadGame(stage));
+		slotSelection.getChildren().add(lastGame);
+		SaveSlots slots = new SaveSlots(Paths.get(SaveSlots.DIRECTORY));
+		List<SaveSlots.Slot> saved = new ArrayList<>();
+		try {
+			saved = slots.list();
+		} catch (IOException e) {
+			e.printStackTrace();
+		}
+		SimpleDateFormat date = new SimpleDateFormat("yyyy-MM-dd HH:mm");
+		for (SaveSlots.Slot slot : saved) {
+			SaveHeader h = slot.header;
+			Button button = new Button(slot.name + "  (Map " + h.map + ", " + h.size + " x " + h.size + ", round "
+					+ h.round + ", " + h.players + " players, " + date.format(new Date(h.savedAt)) + ")");
+			button.setOnAction(ev -> {
+				try {
+					this.model = slots.load(slot);
+					startGame(stage);
+				} catch (NullPointerException e) {
+					Alert noGame = new Alert(Alert.AlertType.INFORMATION);
+					noGame.setContentText("This save could not be loaded.");
+					noGame.showAndWait();
+				}
+			});
+			slotSelection.getChildren().add(button);
+		}
+		ScrollPane scroll = new ScrollPane(slotSelection);
+		scroll.setFitToWidth(true);
+		scroll.setStyle("-fx-background-color: transparent; -fx-background: transparent;");
+		BackgroundImage myBI = new BackgroundImage(new Image("file:./src/views/background.jpg",32,32,false,true),
+		        BackgroundRepeat.REPEAT, BackgroundRepeat.REPEAT, BackgroundPosition.DEFAULT,
+		          BackgroundSize.DEFAULT);
+		Window.setBackground(new Background(myBI));
+		Window.setCenter(scroll);
+		Button mainMenu = new Button("Return to Menu");
+		mainMenu.setOnAction(ev -> buildMenu(stage));
+		Window.setAlignment(mainMenu, Pos.CENTER);
+		Window.setMargin(mainMenu, new Insets(25,25,25,25));
+		Window.setBottom(mainMenu);
+		stage.setScene(scene);
+		stage.show();
+	}
+	/**
+	 * attemptLoadGame() is called when the User clicks "Continue Last Game" in
+	 * 	our Load Menu. If it cannot load a game, it displays an Alert indicating
 	 * 	that no saved game was found and allows the user to select a different option.
 	 * 	If it can load  a game, it loads the game and starts it.
 	 * @param stage our primary stage for our javafx environment
 	 */
 	private void attemptLoadGame(Stage stage) {
 		try {
-			this.model = new CivModel();
+			this.model = null;
+			if (Files.exists(Paths.get(CivModel.JOURNAL_FILE))) {
+				try { // the journal is newer than save_game.dat whenever it exists
+					this.model = Journal.replay(Paths.get(CivModel.JOURNAL_FILE), new TurnListener() {
+					});
+				} catch (IOException e) {
+					e.printStackTrace();
+				}
+			}
+			if (this.model == null)
+				this.model = new CivModel();
 			startGame(stage);
 		} catch (NullPointerException e) {
 			Alert noGame = new Alert(Alert.AlertType.INFORMATION);